@@ -2,9 +2,11 @@ package com.webflux.micromerce.cart;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
+@EnableScheduling
 public class CartApplication {
     public static void main(String[] args) {
         SpringApplication.run(CartApplication.class, args);
@@ -0,0 +1,42 @@
+package com.webflux.micromerce.cart.application.dto.request;
+
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSearchRequest {
+    private String userId;
+    private String productId;
+    private CartStatus status;
+    private BigDecimal minTotal;
+    private BigDecimal maxTotal;
+
+    // createdAt | updatedAt: campo usado pelo período e pelo histograma diário
+    @Builder.Default
+    private String dateField = "createdAt";
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    // createdAt | updatedAt | totalAmount, em ordem decrescente
+    @Builder.Default
+    private String sortBy = "createdAt";
+
+    @Builder.Default
+    private int size = 20;
+
+    private String cursor;
+}
@@ -0,0 +1,19 @@
+package com.webflux.micromerce.cart.application.dto.response;
+
+import com.webflux.micromerce.cart.domain.model.CartAnalytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record CartAnalyticsResponse(
+    LocalDateTime from,
+    LocalDateTime to,
+    long totalCarts,
+    BigDecimal revenue,
+    double averageItemsPerCart,
+    double abandonmentRate,
+    List<CartAnalytics.StatusStats> byStatus,
+    List<CartAnalytics.DailyStats> byDay,
+    List<CartAnalytics.ItemBucket> itemDistribution
+) {}
@@ -0,0 +1,12 @@
+package com.webflux.micromerce.cart.application.dto.response;
+
+import com.webflux.micromerce.cart.domain.model.CartSearchResult;
+
+import java.util.List;
+
+public record CartSearchResponse(
+    long total,
+    List<CartResponse> carts,
+    String nextCursor,
+    CartSearchResult.Aggregations aggregations
+) {}
@@ -0,0 +1,16 @@
+package com.webflux.micromerce.cart.application.dto.response;
+
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record CartSummaryResponse(
+    String id,
+    CartStatus status,
+    BigDecimal totalAmount,
+    BigDecimal discountAmount,
+    int itemCount,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt
+) {}
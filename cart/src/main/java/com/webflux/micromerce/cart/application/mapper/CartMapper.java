@@ -3,8 +3,10 @@ package com.webflux.micromerce.cart.application.mapper;
 import com.webflux.micromerce.cart.application.dto.request.CartItemRequest;
 import com.webflux.micromerce.cart.application.dto.response.CartItemResponse;
 import com.webflux.micromerce.cart.application.dto.response.CartResponse;
+import com.webflux.micromerce.cart.application.dto.response.CartSummaryResponse;
 import com.webflux.micromerce.cart.domain.model.Cart;
 import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.CartSummary;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -27,6 +29,18 @@ public class CartMapper {
         );
     }
     
+    public CartSummaryResponse toSummaryResponse(CartSummary summary) {
+        return new CartSummaryResponse(
+            summary.getId(),
+            summary.getStatus(),
+            summary.getTotalAmount(),
+            summary.getDiscountAmount(),
+            summary.getItemCount(),
+            summary.getCreatedAt(),
+            summary.getUpdatedAt()
+        );
+    }
+    
     private List<CartItemResponse> toCartItemResponses(List<CartItem> items) {
         return items.stream()
                 .map(this::toCartItemResponse)
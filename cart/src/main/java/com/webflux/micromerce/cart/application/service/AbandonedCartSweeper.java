@@ -0,0 +1,154 @@
+package com.webflux.micromerce.cart.application.service;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import com.webflux.micromerce.cart.infrastructure.redis.ActiveCartPointer;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisLockService;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Varre periodicamente os carrinhos ativos sem alteração há mais de cart.abandoned-sweeper.inactivity
+// e os marca como ABANDONED. Apenas o nó que obtém o lock no Redis executa a varredura.
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "cart.abandoned-sweeper.enabled", havingValue = "true", matchIfMissing = true)
+public class AbandonedCartSweeper {
+
+    private static final String LOCK_NAME = "abandoned-cart-sweeper";
+
+    private final CartRepository cartRepository;
+    private final RedisService redisService;
+    private final RedisLockService lockService;
+    private final ActiveCartPointer activeCartPointer;
+    private final PromoService promoService;
+    private final Duration inactivity;
+    private final int batchSize;
+    private final Duration batchInterval;
+    private final Duration lockTtl;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong cartsPerSecond = new AtomicLong();
+    private final Counter abandoned;
+    private final Timer sweepTimer;
+
+    public AbandonedCartSweeper(CartRepository cartRepository,
+                                RedisService redisService,
+                                RedisLockService lockService,
+                                ActiveCartPointer activeCartPointer,
+                                PromoService promoService,
+                                MeterRegistry meterRegistry,
+                                @Value("${cart.abandoned-sweeper.inactivity:24h}") Duration inactivity,
+                                @Value("${cart.abandoned-sweeper.batch-size:500}") int batchSize,
+                                @Value("${cart.abandoned-sweeper.max-carts-per-second:1000}") int maxCartsPerSecond,
+                                @Value("${cart.abandoned-sweeper.lock-ttl:10m}") Duration lockTtl) {
+        this.cartRepository = cartRepository;
+        this.redisService = redisService;
+        this.lockService = lockService;
+        this.activeCartPointer = activeCartPointer;
+        this.promoService = promoService;
+        this.inactivity = inactivity;
+        this.batchSize = batchSize;
+        // Limite de vazão: cada lote espera o tempo correspondente ao seu tamanho
+        this.batchInterval = Duration.ofMillis(Math.max(1, batchSize * 1000L / maxCartsPerSecond));
+        this.lockTtl = lockTtl;
+        this.abandoned = Counter.builder("cart.sweeper.abandoned").register(meterRegistry);
+        this.sweepTimer = Timer.builder("cart.sweeper.duration").register(meterRegistry);
+        meterRegistry.gauge("cart.sweeper.carts-per-second", cartsPerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.abandoned-sweeper.interval:PT5M}",
+            initialDelayString = "${cart.abandoned-sweeper.initial-delay:PT1M}")
+    public void scheduleSweep() {
+        sweep().subscribe(
+                count -> log.debug("Varredura de carrinhos abandonados finalizada: {} carrinhos", count),
+                error -> log.error("Erro na varredura de carrinhos abandonados: {}", error.getMessage()));
+    }
+
+    // Vazio quando outra varredura está em andamento neste nó ou o lock pertence a outro nó
+    public Mono<Long> sweep() {
+        if (!running.compareAndSet(false, true)) {
+            log.debug("Varredura de carrinhos abandonados já em andamento");
+            return Mono.empty();
+        }
+        return lockService.tryAcquire(LOCK_NAME, lockTtl)
+                .flatMap(token -> runSweep()
+                        .flatMap(count -> lockService.release(LOCK_NAME, token).thenReturn(count))
+                        .onErrorResume(error -> lockService.release(LOCK_NAME, token).then(Mono.error(error))))
+                .doFinally(signal -> running.set(false));
+    }
+
+    private Mono<Long> runSweep() {
+        LocalDateTime threshold = LocalDateTime.now().minus(inactivity);
+        long start = System.nanoTime();
+        log.info("Iniciando varredura de carrinhos abandonados sem alteração desde {}", threshold);
+
+        return cartRepository.findAbandonedCarts(CartStatus.ACTIVE, threshold)
+                .buffer(batchSize)
+                .delayElements(batchInterval)
+                // Não passa da validade do lock; o restante fica para a próxima execução
+                .take(lockTtl)
+                .concatMap(batch -> abandonBatch(batch, threshold))
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> {
+                    long elapsedNanos = System.nanoTime() - start;
+                    sweepTimer.record(Duration.ofNanos(elapsedNanos));
+                    cartsPerSecond.set(elapsedNanos > 0 ? total * 1_000_000_000L / elapsedNanos : total);
+                    log.info("Varredura concluída: {} carrinhos abandonados em {} ms ({} carrinhos/s)",
+                            total, elapsedNanos / 1_000_000, cartsPerSecond.get());
+                });
+    }
+
+    // O evento CART_ABANDONED de cada carrinho é gravado no outbox pelo próprio markAbandoned
+    private Mono<Long> abandonBatch(List<Cart> batch, LocalDateTime threshold) {
+        List<String> batchIds = batch.stream().map(Cart::getId).distinct().toList();
+
+        return cartRepository.markAbandoned(batchIds, threshold)
+                .collectList()
+                .flatMap(cartIds -> redisService.deleteCarts(cartIds)
+                        .then(clearActivePointers(batch, cartIds))
+                        .then(releasePromoUsage(batch, cartIds))
+                        .thenReturn((long) cartIds.size()))
+                .doOnNext(count -> {
+                    abandoned.increment(count);
+                    log.debug("Lote de carrinhos abandonados processado: {} de {}", count, batch.size());
+                });
+    }
+
+    // O markAbandoned não passa pelo CartWritePipeline, então os ponteiros de carrinho ativo são removidos aqui
+    // Carrinho abandonado não será finalizado: o uso reservado do código promocional é devolvido
+    private Mono<Void> releasePromoUsage(List<Cart> batch, List<String> abandonedIds) {
+        Set<String> abandonedSet = Set.copyOf(abandonedIds);
+        return Flux.fromIterable(batch)
+                .filter(cart -> cart.getPromoCode() != null && abandonedSet.contains(cart.getId()))
+                .flatMap(cart -> promoService.releaseUsage(cart.getPromoCode(), cart.getId()))
+                .then();
+    }
+
+    private Mono<Void> clearActivePointers(List<Cart> batch, List<String> abandonedIds) {
+        Set<String> abandonedSet = Set.copyOf(abandonedIds);
+        return Flux.fromIterable(batch)
+                .filter(cart -> cart.getUserId() != null && abandonedSet.contains(cart.getId()))
+                .flatMap(cart -> activeCartPointer.clear(cart.getUserId(), cart.getId()))
+                .onErrorResume(error -> {
+                    log.warn("Erro ao remover ponteiros de carrinho ativo do lote abandonado: {}", error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
@@ -0,0 +1,94 @@
+package com.webflux.micromerce.cart.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import com.webflux.micromerce.cart.infrastructure.cache.SingleFlight;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Leitura de carrinhos pelo cache. Em um miss, leituras concorrentes do mesmo carrinho compartilham uma
+// única consulta ao MongoDB, que também grava o cache uma única vez. Perto da expiração da chave no Redis
+// o carrinho é recarregado em segundo plano com probabilidade crescente (XFetch), para que a expiração
+// de um carrinho muito lido não leve todas as leituras ao MongoDB ao mesmo tempo.
+@Slf4j
+@Service
+public class CartLoader {
+
+    // Mesmo TTL das chaves de carrinho no Redis: depois disso a próxima leitura é um miss e mede a carga de novo
+    private static final Duration LOAD_TIME_RETENTION = Duration.ofHours(24);
+    private static final long MAX_TRACKED_CARTS = 100_000;
+
+    private final CartRepository cartRepository;
+    private final RedisService redisService;
+    private final SingleFlight<String, Cart> loads;
+    private final double earlyRefreshBeta;
+    // Duração da última carga de cada carrinho: um carrinho grande e lento não antecipa a recarga dos demais
+    private final Cache<String, Long> loadMillis;
+    private final Counter earlyRefreshes;
+
+    public CartLoader(CartRepository cartRepository,
+                      RedisService redisService,
+                      MeterRegistry meterRegistry,
+                      @Value("${cart.cache.early-refresh.beta:1.0}") double earlyRefreshBeta) {
+        this.cartRepository = cartRepository;
+        this.redisService = redisService;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.loadMillis = Caffeine.newBuilder()
+                .expireAfterWrite(LOAD_TIME_RETENTION)
+                .maximumSize(MAX_TRACKED_CARTS)
+                .build();
+        this.loads = new SingleFlight<>(Counter.builder("cart.load.coalesced").register(meterRegistry));
+        this.earlyRefreshes = Counter.builder("cart.cache.early-refresh").register(meterRegistry);
+    }
+
+    public Mono<Cart> load(String cartId) {
+        return redisService.getCachedCart(cartId)
+                .doOnNext(entry -> {
+                    if (shouldRefreshEarly(cartId, entry.remainingTtl())) {
+                        refreshInBackground(cartId);
+                    }
+                })
+                .map(RedisService.CachedCart::cart)
+                .switchIfEmpty(Mono.defer(() -> loadFromRepository(cartId)));
+    }
+
+    private Mono<Cart> loadFromRepository(String cartId) {
+        return loads.execute(cartId, () -> cartRepository.findById(cartId)
+                .elapsed()
+                .doOnNext(loaded -> loadMillis.put(cartId, loaded.getT1()))
+                .map(loaded -> loaded.getT2())
+                .flatMap(cart -> redisService.setCart(cart).thenReturn(cart))
+                .doOnNext(cart -> log.debug("Carrinho {} carregado do MongoDB para o cache", cartId)));
+    }
+
+    // Refaz a carga quando -delta * beta * ln(rand) alcança o TTL restante, delta sendo a duração da última carga
+    // deste carrinho; sem carga medida nesta instância não há recarga antecipada
+    private boolean shouldRefreshEarly(String cartId, Duration remainingTtl) {
+        if (remainingTtl == null || remainingTtl.isNegative() || remainingTtl.isZero()) {
+            return false;
+        }
+        Long delta = loadMillis.getIfPresent(cartId);
+        if (delta == null) {
+            return false;
+        }
+        double gap = -delta * earlyRefreshBeta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return gap >= remainingTtl.toMillis();
+    }
+
+    private void refreshInBackground(String cartId) {
+        earlyRefreshes.increment();
+        loadFromRepository(cartId)
+                .subscribe(cart -> log.debug("Carrinho {} atualizado no cache antes da expiração", cartId),
+                        error -> log.error("Erro ao atualizar antecipadamente o carrinho {}: {}", cartId, error.getMessage()));
+    }
+}
@@ -0,0 +1,92 @@
+package com.webflux.micromerce.cart.application.service;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.infrastructure.redis.ActiveCartPointer;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Caminho único das escritas de carrinho: grava no MongoDB e em seguida replica o carrinho resultante no
+// Redis. Se a escrita no cache falhar, a chave é removida para que a próxima leitura recarregue do MongoDB;
+// assim nenhuma alteração deixa no cache um carrinho diferente do persistido. No mesmo estágio é mantido o
+// ponteiro do carrinho ativo do usuário. Cada estágio gera o timer cart.write com as tags operation e stage.
+@Slf4j
+@Service
+public class CartWritePipeline {
+
+    public static final String PERSIST = "persist";
+    public static final String CACHE = "cache";
+
+    private final RedisService redisService;
+    private final ActiveCartPointer activeCartPointer;
+    private final MeterRegistry meterRegistry;
+    private final Duration activeCartTtl;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public CartWritePipeline(RedisService redisService,
+                             ActiveCartPointer activeCartPointer,
+                             MeterRegistry meterRegistry,
+                             @Value("${cart.active-cart.ttl:7d}") Duration activeCartTtl) {
+        this.redisService = redisService;
+        this.activeCartPointer = activeCartPointer;
+        this.meterRegistry = meterRegistry;
+        this.activeCartTtl = activeCartTtl;
+    }
+
+    public Mono<Cart> write(String operation, Mono<Cart> persist) {
+        return write(operation, persist, redisService::setCart);
+    }
+
+    // cacheUpdate permite gravar no Redis só a alteração (p.ex. RedisService.cacheItemsAdded)
+    public Mono<Cart> write(String operation, Mono<Cart> persist, Function<Cart, Mono<Boolean>> cacheUpdate) {
+        return timed(operation, PERSIST, persist)
+                .flatMap(cart -> timed(operation, CACHE, Mono.defer(() -> cacheUpdate.apply(cart))
+                                .onErrorReturn(false)
+                                .flatMap(written -> written ? Mono.just(true) : invalidate(cart))
+                                .and(trackActiveCart(cart)))
+                        .thenReturn(cart));
+    }
+
+    public <T> Mono<T> timed(String operation, String stage, Mono<T> source) {
+        Timer timer = timers.computeIfAbsent(operation + ":" + stage, key -> Timer.builder("cart.write")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .register(meterRegistry));
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return source.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    // Enquanto o carrinho está ACTIVE o ponteiro aponta para ele; ao sair desse status (checkout, conclusão,
+    // abandono) é removido, desde que ainda aponte para este carrinho. Uma falha aqui não desfaz a escrita:
+    // a leitura do carrinho ativo confere o status e recorre ao MongoDB quando o ponteiro está desatualizado.
+    private Mono<Boolean> trackActiveCart(Cart cart) {
+        if (cart.getUserId() == null) {
+            return Mono.empty();
+        }
+        Mono<Boolean> update = cart.getStatus() == CartStatus.ACTIVE
+                ? activeCartPointer.set(cart.getUserId(), cart.getId(), activeCartTtl)
+                : activeCartPointer.clear(cart.getUserId(), cart.getId());
+        return update.onErrorResume(error -> {
+            log.warn("Erro ao atualizar o carrinho ativo do usuário {}: {}", cart.getUserId(), error.getMessage());
+            return Mono.just(false);
+        });
+    }
+
+    private Mono<Boolean> invalidate(Cart cart) {
+        log.warn("Falha ao atualizar o carrinho {} no Redis; removendo a entrada do cache", cart.getId());
+        return redisService.deleteCart(cart.getId());
+    }
+}
@@ -0,0 +1,212 @@
+package com.webflux.micromerce.cart.application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webflux.micromerce.cart.infrastructure.cache.SingleFlight;
+import com.webflux.micromerce.cart.infrastructure.redis.IdempotencyStore;
+import com.webflux.micromerce.cart.presentation.exception.IdempotencyConflictException;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.function.Supplier;
+
+// Executa uma mutação no máximo uma vez por Idempotency-Key. Duplicatas concorrentes na mesma instância
+// compartilham a execução; entre instâncias, a chave é reservada no Redis e quem chega depois aguarda a
+// resposta gravada. Respostas concluídas ficam também em um cache local, e repetições da mesma instância
+// não vão ao Redis. Reutilizar a chave com outra requisição (impressão digital diferente) resulta em 409.
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration pendingTtl;
+    private final Duration waitTimeout;
+    private final SingleFlight<String, Object> inFlight;
+    private final Cache<String, Completed> completed;
+
+    public IdempotencyService(IdempotencyStore store,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${cart.idempotency.ttl:10m}") Duration ttl,
+                              @Value("${cart.idempotency.pending-ttl:30s}") Duration pendingTtl,
+                              @Value("${cart.idempotency.wait-timeout:2s}") Duration waitTimeout,
+                              @Value("${cart.idempotency.local-max-size:10000}") long localMaxSize) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.pendingTtl = pendingTtl;
+        this.waitTimeout = waitTimeout;
+        this.inFlight = new SingleFlight<>(Counter.builder("cart.idempotency.coalesced").register(meterRegistry));
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Sem Idempotency-Key a ação é executada normalmente. scope separa chaves iguais de operações diferentes
+    public <T> Mono<T> execute(String scope, String idempotencyKey, Object request, Class<T> type, Supplier<Mono<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return Mono.defer(action);
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new InvalidRequestException("Idempotency-Key deve ter no máximo " + MAX_KEY_LENGTH + " caracteres"));
+        }
+        String key = scope + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+        // A impressão digital faz parte da chave local: uma requisição diferente não herda o resultado de outra
+        return inFlight.execute(key + "#" + fingerprint, () -> resolve(key, fingerprint, type, action).cast(Object.class))
+                .cast(type);
+    }
+
+    private <T> Mono<T> resolve(String key, String fingerprint, Class<T> type, Supplier<Mono<T>> action) {
+        return Mono.defer(() -> {
+            Completed local = completed.getIfPresent(key);
+            if (local != null) {
+                return replay(key, local.fingerprint(), fingerprint, type.cast(local.result()));
+            }
+            return store.reserve(key, write(IdempotencyRecord.pending(fingerprint)), pendingTtl)
+                    .map(reserved -> reserved ? Reservation.ACQUIRED : Reservation.TAKEN)
+                    // Sem Redis a requisição é executada sem garantia de idempotência, em vez de falhar
+                    .onErrorResume(error -> {
+                        log.warn("Registro de Idempotency-Key indisponível, executando sem deduplicação: {}", error.getMessage());
+                        count("store_unavailable");
+                        return Mono.just(Reservation.UNAVAILABLE);
+                    })
+                    .flatMap(reservation -> switch (reservation) {
+                        case ACQUIRED -> run(key, fingerprint, type, action);
+                        case TAKEN -> awaitExisting(key, fingerprint, type, action);
+                        case UNAVAILABLE -> Mono.defer(action);
+                    });
+        });
+    }
+
+    private <T> Mono<T> run(String key, String fingerprint, Class<T> type, Supplier<Mono<T>> action) {
+        count("executed");
+        return Mono.defer(action)
+                .flatMap(result -> store.complete(key, write(IdempotencyRecord.done(fingerprint, write(result))), ttl)
+                        .onErrorResume(error -> {
+                            log.warn("Erro ao gravar resposta idempotente {}: {}", key, error.getMessage());
+                            return Mono.just(false);
+                        })
+                        .doOnNext(stored -> completed.put(key, new Completed(fingerprint, result)))
+                        .thenReturn(result))
+                // Com erro (ou sem resultado) a reserva é liberada para que a repetição do cliente execute de novo
+                .switchIfEmpty(Mono.defer(() -> release(key).then(Mono.empty())))
+                .onErrorResume(error -> release(key).then(Mono.error(error)));
+    }
+
+    // Outra instância detém a reserva: aguarda a resposta gravada ou, se a reserva for liberada, tenta de novo
+    private <T> Mono<T> awaitExisting(String key, String fingerprint, Class<T> type, Supplier<Mono<T>> action) {
+        return Mono.defer(() -> store.get(key))
+                .map(this::read)
+                .defaultIfEmpty(IdempotencyRecord.ABSENT)
+                .filter(record -> !record.inProgress())
+                .repeatWhenEmpty(attempts -> attempts.delayElements(POLL_INTERVAL))
+                .timeout(waitTimeout, Mono.defer(() -> {
+                    count("conflict");
+                    return Mono.error(new IdempotencyConflictException(
+                            "Já existe uma requisição em andamento com esta Idempotency-Key"));
+                }))
+                .flatMap(record -> record == IdempotencyRecord.ABSENT
+                        ? resolve(key, fingerprint, type, action)
+                        : replay(key, record.fingerprint(), fingerprint, read(record.response(), type)));
+    }
+
+    private <T> Mono<T> replay(String key, String storedFingerprint, String fingerprint, T result) {
+        if (!storedFingerprint.equals(fingerprint)) {
+            count("conflict");
+            return Mono.error(new IdempotencyConflictException(
+                    "Idempotency-Key já utilizada com uma requisição diferente"));
+        }
+        count("replayed");
+        log.debug("Resposta idempotente reaproveitada: {}", key);
+        return Mono.just(result);
+    }
+
+    private Mono<Boolean> release(String key) {
+        return store.release(key)
+                .onErrorResume(error -> {
+                    log.warn("Erro ao liberar reserva idempotente {}: {}", key, error.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+                    request instanceof String text ? text.getBytes(StandardCharsets.UTF_8) : objectMapper.writeValueAsBytes(request));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao calcular a impressão digital da requisição", e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao serializar registro idempotente", e);
+        }
+    }
+
+    private IdempotencyRecord read(String json) {
+        return read(json, IdempotencyRecord.class);
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao desserializar registro idempotente", e);
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("cart.idempotency.requests", "outcome", outcome).increment();
+    }
+
+    // status PENDING enquanto a requisição original executa; DONE com a resposta serializada
+    private record IdempotencyRecord(String status, String fingerprint, String response) {
+        static final String PENDING = "PENDING";
+        static final String DONE = "DONE";
+        static final IdempotencyRecord ABSENT = new IdempotencyRecord(null, null, null);
+
+        static IdempotencyRecord pending(String fingerprint) {
+            return new IdempotencyRecord(PENDING, fingerprint, null);
+        }
+
+        static IdempotencyRecord done(String fingerprint, String response) {
+            return new IdempotencyRecord(DONE, fingerprint, response);
+        }
+
+        boolean inProgress() {
+            return PENDING.equals(status);
+        }
+    }
+
+    private enum Reservation {
+        ACQUIRED, TAKEN, UNAVAILABLE
+    }
+
+    private record Completed(String fingerprint, Object result) {
+    }
+}
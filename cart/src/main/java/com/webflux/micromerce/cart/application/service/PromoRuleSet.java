@@ -0,0 +1,100 @@
+package com.webflux.micromerce.cart.application.service;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.PromoRule;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Conjunto imutável de regras já compiladas: a avaliação de um código é uma busca no mapa e uma passada
+// pelos itens do carrinho, sem consultas externas. Um conjunto novo substitui o anterior por inteiro.
+public final class PromoRuleSet {
+
+    public static final PromoRuleSet EMPTY = new PromoRuleSet(Map.of());
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private final Map<String, CompiledRule> rules;
+
+    private PromoRuleSet(Map<String, CompiledRule> rules) {
+        this.rules = rules;
+    }
+
+    public static PromoRuleSet compile(Collection<PromoRule> promoRules) {
+        Map<String, CompiledRule> compiled = new HashMap<>();
+        for (PromoRule rule : promoRules) {
+            if (rule.isActive() && rule.getCode() != null && rule.getDiscountType() != null && rule.getValue() != null) {
+                compiled.put(rule.getCode(), CompiledRule.of(rule));
+            }
+        }
+        return new PromoRuleSet(Map.copyOf(compiled));
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    public CompiledRule find(String code) {
+        return code == null ? null : rules.get(code);
+    }
+
+    public record CompiledRule(String code,
+                               boolean percent,
+                               BigDecimal value,
+                               BigDecimal minSubtotal,
+                               Set<String> productIds,
+                               long startsAtMillis,
+                               long expiresAtMillis,
+                               Long usageLimit) {
+
+        static CompiledRule of(PromoRule rule) {
+            boolean percent = rule.getDiscountType() == PromoRule.DiscountType.PERCENT;
+            return new CompiledRule(
+                    rule.getCode(),
+                    percent,
+                    // Percentual já convertido em fração
+                    percent ? rule.getValue().divide(ONE_HUNDRED) : rule.getValue(),
+                    rule.getMinSubtotal(),
+                    rule.getProductIds() == null ? Set.of() : Set.copyOf(rule.getProductIds()),
+                    rule.getStartsAt() == null ? Long.MIN_VALUE : rule.getStartsAt().toEpochMilli(),
+                    rule.getExpiresAt() == null ? Long.MAX_VALUE : rule.getExpiresAt().toEpochMilli(),
+                    rule.getUsageLimit());
+        }
+
+        public boolean isValidAt(Instant now) {
+            long millis = now.toEpochMilli();
+            return millis >= startsAtMillis && millis < expiresAtMillis;
+        }
+
+        // Retorna nulo quando o carrinho não atende às condições da regra
+        public BigDecimal discountFor(Cart cart) {
+            BigDecimal subtotal = BigDecimal.ZERO;
+            BigDecimal eligible = BigDecimal.ZERO;
+            for (CartItem item : cart.getItems()) {
+                BigDecimal itemSubtotal = item.getSubtotal();
+                subtotal = subtotal.add(itemSubtotal);
+                if (productIds.isEmpty() || productIds.contains(item.getProductId())) {
+                    eligible = eligible.add(itemSubtotal);
+                }
+            }
+            if (minSubtotal != null && subtotal.compareTo(minSubtotal) < 0) {
+                return null;
+            }
+            if (eligible.signum() == 0) {
+                return null;
+            }
+            BigDecimal discount = percent ? eligible.multiply(value) : value.min(eligible);
+            return discount.setScale(2, RoundingMode.HALF_EVEN);
+        }
+
+        public Instant expiresAt() {
+            return expiresAtMillis == Long.MAX_VALUE ? null : Instant.ofEpochMilli(expiresAtMillis);
+        }
+    }
+}
@@ -1,31 +1,174 @@
 package com.webflux.micromerce.cart.application.service;
 
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.PromoRule;
+import com.webflux.micromerce.cart.infrastructure.persistence.PromoRuleStore;
+import com.webflux.micromerce.cart.infrastructure.redis.PromoUsageCounter;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
 import java.math.BigDecimal;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+// Regras promocionais carregadas do MongoDB e compiladas em um PromoRuleSet imutável. O conjunto é
+// recarregado e trocado de uma vez a cada notificação de alteração (e periodicamente, caso alguma
+// notificação se perca); as leituras nunca veem um conjunto pela metade.
+@Slf4j
 @Service
-public class PromoService {
-    private final Map<String, BigDecimal> promoDiscounts = new ConcurrentHashMap<>();
+public class PromoService implements ApplicationRunner {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+    // Validade da marca de uso quando o código não tem data de expiração
+    private static final Duration DEFAULT_USAGE_MARK_TTL = Duration.ofDays(90);
+    // Validade mínima da marca: um código vencido nunca gera PX negativo (o script recusaria o SET)
+    private static final Duration MIN_USAGE_MARK_TTL = Duration.ofHours(1);
+
+    private final PromoRuleStore ruleStore;
+    private final PromoUsageCounter usageCounter;
+    private final Duration reloadInterval;
+    private final AtomicReference<PromoRuleSet> ruleSet = new AtomicReference<>(PromoRuleSet.EMPTY);
+    private Disposable reloadSubscription;
+
+    public PromoService(PromoRuleStore ruleStore,
+                        PromoUsageCounter usageCounter,
+                        MeterRegistry meterRegistry,
+                        @Value("${cart.promo.reload-interval:5m}") Duration reloadInterval) {
+        this.ruleStore = ruleStore;
+        this.usageCounter = usageCounter;
+        this.reloadInterval = reloadInterval;
+        Gauge.builder("cart.promo.rules", ruleSet, rules -> rules.get().size())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        seedDefaults().then(reload()).block(STARTUP_TIMEOUT);
+
+        // Várias notificações seguidas resultam em uma única recarga
+        reloadSubscription = Flux.merge(ruleStore.changes(), Flux.interval(reloadInterval).map(String::valueOf))
+                .onBackpressureLatest()
+                .concatMap(change -> reload(), 1)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Reiniciando a recarga das regras promocionais: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reloadSubscription != null) {
+            reloadSubscription.dispose();
+        }
+    }
+
+    public Mono<Void> reload() {
+        return ruleStore.findActive()
+                .collectList()
+                .map(PromoRuleSet::compile)
+                .doOnNext(compiled -> {
+                    ruleSet.set(compiled);
+                    log.info("{} códigos promocionais carregados", compiled.size());
+                })
+                .then();
+    }
+
+    // Só avalia a regra; o uso é contado à parte por reserveUsage
+    public Mono<BigDecimal> calculateDiscount(String promoCode, Cart cart) {
+        return Mono.fromCallable(() -> {
+            PromoRuleSet.CompiledRule rule = ruleSet.get().find(promoCode);
+            if (rule == null || !rule.isValidAt(Instant.now())) {
+                throw new InvalidRequestException("Código promocional inválido");
+            }
+            BigDecimal discount = rule.discountFor(cart);
+            if (discount == null) {
+                throw new InvalidRequestException("O carrinho não atende às condições do código promocional");
+            }
+            return discount;
+        });
+    }
 
-    public PromoService() {
-        // Inicialize alguns códigos promocionais de amostra
-        promoDiscounts.put("WELCOME18", new BigDecimal("18.00"));
-        promoDiscounts.put("SAVE28", new BigDecimal("28.00"));
+    // Retorna true quando o uso foi contado agora (e deve ser liberado se a aplicação do código falhar).
+    // Deve ser chamado depois de calculateDiscount, que valida o código contra o carrinho
+    public Mono<Boolean> reserveUsage(String promoCode, String cartId) {
+        PromoRuleSet.CompiledRule rule = ruleSet.get().find(promoCode);
+        if (rule == null || rule.usageLimit() == null) {
+            return Mono.just(false);
+        }
+        return usageCounter.reserve(promoCode, cartId, rule.usageLimit(), usageMarkTtl(rule))
+                .flatMap(result -> result == PromoUsageCounter.LIMIT_REACHED
+                        ? Mono.error(new InvalidRequestException("Limite de uso do código promocional atingido"))
+                        : Mono.just(result == PromoUsageCounter.RESERVED));
     }
 
-    public Mono<BigDecimal> validateAndCalculateDiscount(String promoCode) {
-        return Mono.justOrEmpty(promoDiscounts.get(promoCode))
-                .switchIfEmpty(Mono.error(new IllegalArgumentException("Código promocional inválido")));
+    public Mono<Void> releaseUsage(String promoCode, String cartId) {
+        return usageCounter.release(promoCode, cartId);
+    }
+
+    // Libera a reserva do código anterior quando o carrinho passa a usar outro código (ou nenhum)
+    public Mono<Void> releaseReplacedUsage(String previousCode, String currentCode, String cartId) {
+        if (previousCode == null || previousCode.equals(currentCode)) {
+            return Mono.empty();
+        }
+        return releaseUsage(previousCode, cartId);
+    }
+
+    public Mono<PromoRule> saveRule(PromoRule rule) {
+        return ruleStore.save(rule);
     }
 
     public Mono<Void> addPromoCode(String code, BigDecimal discount) {
-        return Mono.fromRunnable(() -> promoDiscounts.put(code, discount));
+        return saveRule(PromoRule.builder()
+                .code(code)
+                .discountType(PromoRule.DiscountType.FIXED)
+                .value(discount)
+                .build())
+                .then();
     }
 
     public Mono<Void> removePromoCode(String code) {
-        return Mono.fromRunnable(() -> promoDiscounts.remove(code));
+        return ruleStore.delete(code);
+    }
+
+    // Códigos de amostra gravados apenas quando a coleção está vazia
+    private Mono<Void> seedDefaults() {
+        return ruleStore.count()
+                .filter(count -> count == 0)
+                .flatMapMany(empty -> Flux.fromIterable(List.of(
+                        PromoRule.builder()
+                                .code("WELCOME18")
+                                .discountType(PromoRule.DiscountType.FIXED)
+                                .value(new BigDecimal("18.00"))
+                                .minSubtotal(new BigDecimal("100.01"))
+                                .build(),
+                        PromoRule.builder()
+                                .code("SAVE28")
+                                .discountType(PromoRule.DiscountType.FIXED)
+                                .value(new BigDecimal("28.00"))
+                                .build())))
+                .concatMap(ruleStore::save)
+                .then();
+    }
+
+    private static Duration usageMarkTtl(PromoRuleSet.CompiledRule rule) {
+        if (rule.expiresAt() == null) {
+            return DEFAULT_USAGE_MARK_TTL;
+        }
+        Duration ttl = Duration.between(Instant.now(), rule.expiresAt()).plus(Duration.ofDays(1));
+        return ttl.compareTo(MIN_USAGE_MARK_TTL) < 0 ? MIN_USAGE_MARK_TTL : ttl;
     }
 }
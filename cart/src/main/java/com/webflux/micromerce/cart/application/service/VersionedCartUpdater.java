@@ -0,0 +1,85 @@
+package com.webflux.micromerce.cart.application.service;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import com.webflux.micromerce.cart.presentation.exception.CartNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+public class VersionedCartUpdater {
+
+    private final CartRepository cartRepository;
+    private final long maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final Counter commits;
+    private final Counter conflicts;
+    private final Counter exhausted;
+
+    public VersionedCartUpdater(CartRepository cartRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${cart.update.max-retries:5}") long maxRetries,
+                                @Value("${cart.update.min-backoff:20ms}") Duration minBackoff,
+                                @Value("${cart.update.max-backoff:500ms}") Duration maxBackoff) {
+        this.cartRepository = cartRepository;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.commits = Counter.builder("cart.update.commits").register(meterRegistry);
+        this.conflicts = Counter.builder("cart.update.conflicts").register(meterRegistry);
+        this.exhausted = Counter.builder("cart.update.retries.exhausted").register(meterRegistry);
+    }
+
+    public Mono<Cart> update(String cartId, Function<Cart, Mono<Cart>> mutation) {
+        return update(cartId, cartRepository.findById(cartId), mutation);
+    }
+
+    public Mono<Cart> update(String cartId, String eventType, Function<Cart, Mono<Cart>> mutation) {
+        return update(cartId, cartRepository.findById(cartId), eventType, mutation);
+    }
+
+    // A primeira tentativa usa o carrinho já lido (p.ex. do cache); em caso de conflito a mutação
+    // é reaplicada sobre a versão atual lida do MongoDB
+    public Mono<Cart> update(String cartId, Mono<Cart> firstRead, Function<Cart, Mono<Cart>> mutation) {
+        return update(cartId, firstRead, null, mutation);
+    }
+
+    // eventType não nulo: o evento é gravado no outbox junto com a alteração do carrinho
+    public Mono<Cart> update(String cartId, Mono<Cart> firstRead, String eventType, Function<Cart, Mono<Cart>> mutation) {
+        AtomicInteger attempts = new AtomicInteger();
+        return Mono.defer(() -> {
+                    Mono<Cart> source = attempts.getAndIncrement() == 0 ? firstRead : cartRepository.findById(cartId);
+                    return source
+                            .switchIfEmpty(Mono.error(new CartNotFoundException(cartId)))
+                            .flatMap(mutation)
+                            .flatMap(cart -> eventType == null
+                                    ? cartRepository.update(cart)
+                                    : cartRepository.update(cart, eventType));
+                })
+                .doOnNext(cart -> commits.increment())
+                .doOnError(OptimisticLockingFailureException.class, error -> {
+                    conflicts.increment();
+                    log.warn("Conflito de versão ao atualizar o carrinho {}. Tentativa: {}", cartId, attempts.get());
+                })
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .jitter(0.5)
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            exhausted.increment();
+                            return signal.failure();
+                        }));
+    }
+}
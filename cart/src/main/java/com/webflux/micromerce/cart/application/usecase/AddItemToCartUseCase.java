@@ -1,20 +1,23 @@
 package com.webflux.micromerce.cart.application.usecase;
 
+import com.webflux.micromerce.cart.application.service.CartWritePipeline;
+import com.webflux.micromerce.cart.domain.event.CartEvent;
 import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
 import com.webflux.micromerce.cart.domain.model.CartStatus;
 import com.webflux.micromerce.cart.domain.repository.CartRepository;
 import com.webflux.micromerce.cart.application.mapper.CartMapper;
 import com.webflux.micromerce.cart.application.dto.request.CartItemRequest;
 import com.webflux.micromerce.cart.application.dto.response.CartResponse;
-import com.webflux.micromerce.cart.infrastructure.messaging.CartEventPublisher;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
-import java.time.Duration;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -23,31 +26,52 @@ public class AddItemToCartUseCase {
 
     private final CartRepository cartRepository;
     private final CartMapper cartMapper;
-    private final CartEventPublisher eventPublisher;
+    private final RedisService redisService;
+    private final CartWritePipeline writePipeline;
 
     public AddItemToCartUseCase(CartRepository cartRepository,
                                CartMapper cartMapper,
-                               CartEventPublisher eventPublisher) {
+                               RedisService redisService,
+                               CartWritePipeline writePipeline) {
         this.cartRepository = cartRepository;
         this.cartMapper = cartMapper;
-        this.eventPublisher = eventPublisher;
+        this.redisService = redisService;
+        this.writePipeline = writePipeline;
     }
 
     public Mono<CartResponse> execute(String cartId, CartItemRequest request) {
         log.info("Adicionando item ao carrinho: {}", cartId);
-        
-        return findOrCreateCart(cartId)
-            .flatMap(cart -> addItemToCart(cart, request))
-            .flatMap(this::persistCartUpdates)
+
+        CartItem item = cartMapper.toCartItem(request);
+        item.setId(UUID.randomUUID().toString());
+
+        Mono<Cart> persist = pushItem(cartId, item)
+            .switchIfEmpty(Mono.defer(() -> resolveMissingCart(cartId, item)));
+        return writePipeline.write("add-item", persist, cart -> redisService.cacheItemsAdded(cart, List.of(item)))
             .map(cartMapper::toResponse)
-            .doOnSuccess(this::publishCartEvent)
             .doOnError(e -> log.error("Erro ao adicionar item ao carrinho: {}", e.getMessage()));
     }
 
-    private Mono<Cart> findOrCreateCart(String cartId) {
+    // Sem nova tentativa automática: o push acrescenta itens e evento a cada execução, e um timeout depois de
+    // aplicado no servidor duplicaria os itens, o total e o ITEM_ADDED
+    private Mono<Cart> pushItem(String cartId, CartItem item) {
+        return cartRepository.pushItem(cartId, item)
+            .doOnSuccess(savedCart -> {
+                if (savedCart != null) {
+                    log.debug("Item adicionado ao carrinho: {}", savedCart.getId());
+                }
+            });
+    }
+
+    // O push atômico só casa carrinhos ativos: aqui se distingue carrinho inexistente de carrinho inativo
+    private Mono<Cart> resolveMissingCart(String cartId, CartItem item) {
         return cartRepository.findById(cartId)
-            .switchIfEmpty(createNewCart(cartId))
-            .doOnNext(cart -> log.debug("Carrinho encontrado/criado: {}", cartId));
+            .flatMap(cart -> {
+                log.warn("Tentou adicionar item ao carrinho inativo: {}", cart.getId());
+                return Mono.<Cart>error(new IllegalStateException("O carrinho não está ativo"));
+            })
+            .switchIfEmpty(Mono.defer(() -> createNewCart(cartId)
+                .flatMap(cart -> pushItem(cartId, item))));
     }
 
     private Mono<Cart> createNewCart(String cartId) {
@@ -56,42 +80,12 @@ public class AddItemToCartUseCase {
                 .userId(cartId) 
                 .items(new ArrayList<>())
                 .status(CartStatus.ACTIVE)
+                .totalAmount(BigDecimal.ZERO)
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
                 
         log.debug("Criando novo carrinho: {}", cartId);
-        return cartRepository.save(newCart);
-    }
-
-    private Mono<Cart> addItemToCart(Cart cart, CartItemRequest request) {
-        if (cart.getStatus() != CartStatus.ACTIVE) {
-            log.warn("Tentou adicionar item ao carrinho inativo: {}", cart.getId());
-            return Mono.error(new IllegalStateException("O carrinho não está ativo"));
-        }
-
-        cart.addItem(cartMapper.toCartItem(request));
-        cart.setUpdatedAt(LocalDateTime.now());
-        
-        log.debug("Item adicionado ao carrinho: {}", cart.getId());
-        return Mono.just(cart);
-    }
-
-    private Mono<Cart> persistCartUpdates(Cart cart) {
-        return cartRepository.save(cart)
-            .retryWhen(Retry.backoff(3, Duration.ofMillis(100))
-                .doBeforeRetry(signal -> 
-                    log.warn("Tentando atualizar o carrinho novamente após falha. Tentativa: {}", signal.totalRetries())
-                ))
-            .doOnSuccess(savedCart -> 
-                log.debug("Atualizações de carrinho persistentes com sucesso: {}", savedCart.getId())
-            );
-    }
-
-    private void publishCartEvent(CartResponse cartResponse) {
-        eventPublisher.publishCartEvent(cartResponse)
-            .doOnSuccess(unused -> log.debug("Evento de carrinho publicado com sucesso"))
-            .doOnError(error -> log.error("Erro ao publicar evento de carrinho: {}", error.getMessage()))
-            .subscribe();
+        return cartRepository.save(newCart, CartEvent.EventType.CART_CREATED);
     }
 }
@@ -0,0 +1,102 @@
+package com.webflux.micromerce.cart.application.usecase;
+
+import com.webflux.micromerce.cart.application.dto.request.CartItemRequest;
+import com.webflux.micromerce.cart.application.dto.response.CartResponse;
+import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.application.service.CartWritePipeline;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
+import com.webflux.micromerce.cart.presentation.exception.CartNotFoundException;
+import com.webflux.micromerce.cart.presentation.exception.InvalidCartStateException;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class AddItemsToCartUseCase {
+
+    private final CartRepository cartRepository;
+    private final CartMapper cartMapper;
+    private final RedisService redisService;
+    private final CartWritePipeline writePipeline;
+    private final Validator validator;
+    private final int maxItems;
+
+    public AddItemsToCartUseCase(CartRepository cartRepository,
+                                 CartMapper cartMapper,
+                                 RedisService redisService,
+                                 CartWritePipeline writePipeline,
+                                 Validator validator,
+                                 @Value("${cart.batch.max-items:1000}") int maxItems) {
+        this.cartRepository = cartRepository;
+        this.cartMapper = cartMapper;
+        this.redisService = redisService;
+        this.writePipeline = writePipeline;
+        this.validator = validator;
+        this.maxItems = maxItems;
+    }
+
+    // Todos os itens são validados antes de qualquer escrita: o lote é aplicado inteiro ou não é aplicado
+    public Mono<CartResponse> execute(String cartId, Flux<CartItemRequest> requests) {
+        log.info("Adicionando itens em lote ao carrinho: {}", cartId);
+
+        return requests
+            .take(maxItems + 1L)
+            .map(this::toValidatedItem)
+            .collectList()
+            .flatMap(items -> {
+                if (items.isEmpty()) {
+                    return Mono.error(new InvalidRequestException("O lote de itens está vazio"));
+                }
+                if (items.size() > maxItems) {
+                    return Mono.error(new InvalidRequestException(
+                        String.format("O lote excede o limite de %d itens", maxItems)));
+                }
+                return writePipeline.write("add-items", pushItems(cartId, items),
+                    cart -> redisService.cacheItemsAdded(cart, items));
+            })
+            .map(cartMapper::toResponse)
+            .doOnError(e -> log.error("Erro ao adicionar itens em lote ao carrinho {}: {}", cartId, e.getMessage()));
+    }
+
+    private CartItem toValidatedItem(CartItemRequest request) {
+        Set<ConstraintViolation<CartItemRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        CartItem item = cartMapper.toCartItem(request);
+        item.setId(UUID.randomUUID().toString());
+        return item;
+    }
+
+    // Sem nova tentativa automática: o push acrescenta itens e evento a cada execução, e um timeout depois de
+    // aplicado no servidor duplicaria os itens, o total e o ITEM_ADDED
+    private Mono<Cart> pushItems(String cartId, List<CartItem> items) {
+        return cartRepository.pushItems(cartId, items)
+            .switchIfEmpty(Mono.defer(() -> resolveFailedPush(cartId)))
+            .doOnNext(cart -> log.debug("{} itens adicionados ao carrinho {}", items.size(), cart.getId()));
+    }
+
+    // O push atômico só casa carrinhos ativos: distingue carrinho inexistente de carrinho inativo
+    private Mono<Cart> resolveFailedPush(String cartId) {
+        return cartRepository.findById(cartId)
+            .switchIfEmpty(Mono.error(new CartNotFoundException(cartId)))
+            .flatMap(cart -> Mono.<Cart>error(cart.getStatus() != CartStatus.ACTIVE
+                ? new InvalidCartStateException(cart.getId(), cart.getStatus())
+                : new IllegalStateException("Não foi possível adicionar os itens ao carrinho " + cartId)));
+    }
+}
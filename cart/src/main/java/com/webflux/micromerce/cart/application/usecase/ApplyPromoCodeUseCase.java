@@ -3,43 +3,67 @@ package com.webflux.micromerce.cart.application.usecase;
 import com.webflux.micromerce.cart.application.dto.request.PromoCodeRequest;
 import com.webflux.micromerce.cart.application.dto.response.CartResponse;
 import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.application.service.CartWritePipeline;
 import com.webflux.micromerce.cart.application.service.PromoService;
+import com.webflux.micromerce.cart.application.service.VersionedCartUpdater;
+import com.webflux.micromerce.cart.domain.event.CartEvent;
+import com.webflux.micromerce.cart.domain.model.Cart;
 import com.webflux.micromerce.cart.domain.model.CartStatus;
-import com.webflux.micromerce.cart.domain.repository.CartRepository;
-import com.webflux.micromerce.cart.presentation.exception.CartNotFoundException;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ApplyPromoCodeUseCase {
-    private final CartRepository cartRepository;
     private final CartMapper cartMapper;
     private final PromoService promoService;
+    private final VersionedCartUpdater cartUpdater;
+    private final RedisService redisService;
+    private final CartWritePipeline writePipeline;
 
+    // O código é validado contra o carrinho antes de reservar o uso; a reserva feita por esta requisição é
+    // liberada se a alteração falhar, e a do código substituído, quando ela é gravada
     public Mono<CartResponse> execute(String cartId, PromoCodeRequest request) {
-        return cartRepository.findById(cartId)
-                .switchIfEmpty(Mono.error(new CartNotFoundException(cartId)))
-                .flatMap(cart -> {
+        String promoCode = request.promoCode();
+        AtomicBoolean reserved = new AtomicBoolean();
+        AtomicReference<String> previousCode = new AtomicReference<>();
+        return applyPromoCode(cartId, promoCode, reserved, previousCode)
+                .flatMap(cart -> promoService.releaseReplacedUsage(previousCode.get(), promoCode, cartId).thenReturn(cart))
+                .onErrorResume(error -> (reserved.get() ? promoService.releaseUsage(promoCode, cartId) : Mono.<Void>empty())
+                        .then(Mono.error(error)))
+                .map(cartMapper::toResponse)
+                .doOnError(error -> log.error("Erro ao aplicar o código promocional ao carrinho {}: {}",
+                    cartId, error.getMessage()));
+    }
+
+    // Repetida em conflito de versão: a marca por carrinho faz a reserva ser contada uma única vez
+    private Mono<Cart> applyPromoCode(String cartId, String promoCode, AtomicBoolean reserved, AtomicReference<String> previousCode) {
+        return writePipeline.write("apply-promo", cartUpdater.update(cartId, CartEvent.EventType.CART_UPDATED, cart -> {
                     if (cart.getStatus() != CartStatus.ACTIVE) {
                         return Mono.error(new IllegalStateException("O carrinho não está ativo"));
                     }
-                    return promoService.validateAndCalculateDiscount(request.promoCode())
+                    previousCode.set(cart.getPromoCode());
+                    return promoService.calculateDiscount(promoCode, cart)
+                            .flatMap(discount -> promoService.reserveUsage(promoCode, cartId)
+                                    .doOnNext(reservedNow -> {
+                                        if (reservedNow) {
+                                            reserved.set(true);
+                                        }
+                                    })
+                                    .thenReturn(discount))
                             .doOnNext(discount -> {
-                                cart.setPromoCode(request.promoCode());
-                                cart.setDiscountAmount(discount);
-                                cart.recalculateTotal();
+                                cart.applyPromoCode(promoCode, discount);
                                 log.info("Código promocional aplicado {} com desconto {} para carrinho {}",
-                                    request.promoCode(), discount, cartId);
+                                    promoCode, discount, cartId);
                             })
                             .thenReturn(cart);
-                })
-                .flatMap(cartRepository::save)
-                .map(cartMapper::toResponse)
-                .doOnError(error -> log.error("Erro ao aplicar o código promocional ao carrinho {}: {}",
-                    cartId, error.getMessage()));
+                }), redisService::cachePromoCode);
     }
 }
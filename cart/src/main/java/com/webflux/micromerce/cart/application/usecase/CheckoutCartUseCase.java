@@ -2,21 +2,20 @@ package com.webflux.micromerce.cart.application.usecase;
 
 import com.webflux.micromerce.cart.application.dto.response.CartResponse;
 import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.application.service.CartWritePipeline;
+import com.webflux.micromerce.cart.application.service.VersionedCartUpdater;
+import com.webflux.micromerce.cart.domain.event.CartEvent;
 import com.webflux.micromerce.cart.domain.model.Cart;
 import com.webflux.micromerce.cart.domain.model.CartStatus;
 import com.webflux.micromerce.cart.domain.repository.CartRepository;
-import com.webflux.micromerce.cart.infrastructure.messaging.CartEventPublisher;
 import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
-import com.webflux.micromerce.cart.presentation.exception.CartNotFoundException;
 import com.webflux.micromerce.cart.presentation.exception.InvalidCartStateException;
 import com.webflux.micromerce.cart.presentation.exception.EmptyCartException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Slf4j
@@ -26,23 +25,27 @@ public class CheckoutCartUseCase {
     private final CartRepository cartRepository;
     private final CartMapper cartMapper;
     private final RedisService redisService;
-    private final CartEventPublisher eventPublisher;
+    private final VersionedCartUpdater cartUpdater;
+    private final CartWritePipeline writePipeline;
 
     public Mono<CartResponse> execute(String cartId) {
-        return findAndValidateCart(cartId)
-            .flatMap(this::startCheckout)
-            .flatMap(this::persistCartUpdates)
-            .map(cartMapper::toResponse)
-            .doOnSuccess(response -> 
-                eventPublisher.publishCartEvent(response).subscribe()
-            );
+        return writePipeline.write("checkout", rejectInactive(cartId)
+            .then(Mono.defer(() -> cartUpdater.update(cartId, findCart(cartId), CartEvent.EventType.CART_CHECKED_OUT,
+                cart -> validateCartState(cart).flatMap(this::startCheckout)))))
+            .map(cartMapper::toResponse);
     }
 
-    private Mono<Cart> findAndValidateCart(String cartId) {
+    // Lê só o status no cache para recusar de imediato um checkout repetido, sem carregar o carrinho
+    private Mono<Void> rejectInactive(String cartId) {
+        return redisService.getCartStatus(cartId)
+            .onErrorResume(error -> Mono.empty())
+            .filter(status -> status != CartStatus.ACTIVE)
+            .flatMap(status -> Mono.<Void>error(new InvalidCartStateException(cartId, status)));
+    }
+
+    private Mono<Cart> findCart(String cartId) {
         return redisService.getCart(cartId)
-            .switchIfEmpty(cartRepository.findById(cartId))
-            .switchIfEmpty(Mono.error(new CartNotFoundException(cartId)))
-            .flatMap(this::validateCartState);
+            .switchIfEmpty(cartRepository.findById(cartId));
     }
 
     private Mono<Cart> validateCartState(Cart cart) {
@@ -60,17 +63,4 @@ public class CheckoutCartUseCase {
         cart.setUpdatedAt(LocalDateTime.now());
         return Mono.just(cart);
     }
-
-    private Mono<Cart> persistCartUpdates(Cart cart) {
-        return cartRepository.save(cart)
-            .flatMap(savedCart -> 
-                redisService.setCart(savedCart)
-                    .retryWhen(Retry.backoff(3, Duration.ofMillis(100)))
-                    .onErrorResume(error -> {
-                        log.error("Erro ao atualizar o cache do Redis para o carrinho {}: {}", cart.getId(), error.getMessage());
-                        return Mono.just(false);
-                    })
-                    .thenReturn(savedCart)
-            );
-    }
 }
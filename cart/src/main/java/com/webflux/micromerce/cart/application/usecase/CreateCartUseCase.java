@@ -3,15 +3,20 @@ package com.webflux.micromerce.cart.application.usecase;
 import com.webflux.micromerce.cart.application.dto.request.CreateCartUserRequest;
 import com.webflux.micromerce.cart.application.dto.response.CartResponse;
 import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.application.service.CartWritePipeline;
+import com.webflux.micromerce.cart.application.service.PromoService;
+import com.webflux.micromerce.cart.application.service.VersionedCartUpdater;
+import com.webflux.micromerce.cart.domain.event.CartEvent;
+import com.webflux.micromerce.cart.presentation.exception.ActiveCartConflictException;
 import com.webflux.micromerce.cart.presentation.exception.CartCreationException;
+import com.webflux.micromerce.cart.presentation.exception.InvalidCartStateException;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
 import com.webflux.micromerce.cart.domain.model.Cart;
 import com.webflux.micromerce.cart.domain.model.CartItem;
 import com.webflux.micromerce.cart.domain.model.CartStatus;
 import com.webflux.micromerce.cart.domain.repository.CartRepository;
-import com.webflux.micromerce.cart.infrastructure.kafka.CartEventPublisher;
-import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
@@ -20,34 +25,42 @@ import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class CreateCartUseCase {
 
     private final CartRepository cartRepository;
-    private final RedisService redisService;
     private final CartMapper cartMapper;
-    private final CartEventPublisher eventPublisher;
+    private final CartWritePipeline writePipeline;
+    private final PromoService promoService;
+    private final VersionedCartUpdater cartUpdater;
 
     public CreateCartUseCase(
             CartRepository cartRepository,
-            RedisService redisService,
             CartMapper cartMapper,
-            @Qualifier("kafkaCartEventPublisher") CartEventPublisher eventPublisher) {
+            CartWritePipeline writePipeline,
+            PromoService promoService,
+            VersionedCartUpdater cartUpdater) {
         this.cartRepository = cartRepository;
-        this.redisService = redisService;
         this.cartMapper = cartMapper;
-        this.eventPublisher = eventPublisher;
+        this.writePipeline = writePipeline;
+        this.promoService = promoService;
+        this.cartUpdater = cartUpdater;
     }
 
     public Mono<CartResponse> execute(String userId) {
         log.info("Iniciando criação de carrinho para usuário: {}", userId);
         
         return Mono.just(createNewCart(userId))
-                .flatMap(this::persistCart)
-                .flatMap(this::publishEvent)
+                .flatMap(cart -> persistCart(cart, CartEvent.EventType.CART_CREATED))
+                // O índice active_cart_per_user recusa um segundo carrinho ACTIVE: devolve o que já existe
+                .onErrorResume(DuplicateKeyException.class, error -> findActiveCart(userId))
                 .map(cartMapper::toResponse)
                 .doOnSuccess(response -> log.info("Carrinho criado com sucesso para usuário: {}", userId))
                 .onErrorResume(error -> {
@@ -70,28 +83,21 @@ public class CreateCartUseCase {
                 .build();
     }
 
-    private Mono<Cart> persistCart(Cart cart) {
-        log.debug("Persistindo carrinho: {}", cart.getId());
-        return cartRepository.save(cart)
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
-                .doOnSuccess(savedCart -> {
-                    log.debug("Carrinho persistido com sucesso: {}", savedCart.getId());
-                    redisService.setCart(savedCart)
-                        .subscribe(success -> {
-                            if (success) {
-                                log.debug("Carrinho cacheado com sucesso no Redis: {}", savedCart.getId());
-                            } else {
-                                log.warn("Falha ao cachear carrinho no Redis: {}", savedCart.getId());
-                            }
-                        });
-                });
+    private Mono<Cart> findActiveCart(String userId) {
+        log.info("Usuário {} já possui carrinho ativo; retornando o carrinho existente", userId);
+        return cartRepository.findByUserIdAndStatus(userId, CartStatus.ACTIVE)
+                .switchIfEmpty(Mono.error(new CartCreationException(
+                    String.format("Carrinho ativo do usuário %s não encontrado após conflito de criação", userId))));
     }
 
-    private Mono<Cart> publishEvent(Cart cart) {
-        return eventPublisher.publishCartCreatedEvent(cart)
-                .doOnSuccess(result -> log.info("Evento de criação de carrinho publicado com sucesso: {}", cart.getId()))
-                .doOnError(error -> log.error("Erro ao publicar evento de criação de carrinho: {}", error.getMessage()))
-                .thenReturn(cart);
+    // O evento vai para o outbox no mesmo documento; o CartOutboxRelay o publica no Kafka
+    private Mono<Cart> persistCart(Cart cart, String eventType) {
+        log.debug("Persistindo carrinho: {}", cart.getId());
+        return writePipeline.write("create", cartRepository.save(cart, eventType)
+                // Violação de unicidade não é transitória e não deve ser repetida
+                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1))
+                        .filter(error -> !(error instanceof DuplicateKeyException)))
+                .doOnSuccess(savedCart -> log.debug("Carrinho persistido com sucesso: {}", savedCart.getId())));
     }
 
     public Mono<CartResponse> createCartWithUserData(CreateCartUserRequest request) {
@@ -103,62 +109,124 @@ public class CreateCartUseCase {
                 .switchIfEmpty(Mono.error(new CartCreationException(
                     String.format("Usuário %s precisa primeiro criar um carrinho básico através do endpoint /api/v1/carts", 
                         request.getUserId()))))
-                .flatMap(existingCart -> {
-                    // Calcula o total dos itens
-                    BigDecimal subtotal = request.getItems().stream()
-                            .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    // Calcula o desconto fixo de R$ 18,00 se o total for maior que R$ 100,00
-                    BigDecimal discountAmount;
-                    if (request.getPromoCode() != null && 
-                        request.getPromoCode().equals("WELCOME18") && 
-                        subtotal.compareTo(new BigDecimal("100.00")) > 0) {
-                        discountAmount = new BigDecimal("18.00");
-                    } else {
-                        discountAmount = BigDecimal.ZERO;
+                .flatMap(existingCart -> CartStatus.ACTIVE.name().equals(request.getStatus())
+                        ? cartRepository.findByUserIdAndStatus(request.getUserId(), CartStatus.ACTIVE)
+                        : Mono.<Cart>empty())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                // Só pode haver um carrinho ACTIVE por usuário: os dados completos são gravados sobre o
+                // carrinho ativo existente (o básico criado em /api/v1/carts), mantendo o id dele
+                .flatMap(activeCart -> activeCart
+                        .map(active -> replaceActiveCart(active, request))
+                        .orElseGet(() -> createFromRequest(request)))
+                .map(cartMapper::toResponse)
+                .doOnSuccess(response -> {
+                    log.info("Carrinho criado com sucesso com dados completos para usuário: {}", request.getUserId());
+                    if (response.discountAmount() != null && response.discountAmount().compareTo(BigDecimal.ZERO) > 0) {
+                        log.info("Desconto de {} aplicado ao carrinho: {}", response.discountAmount(), response.id());
                     }
+                })
+                .onErrorResume(error -> !(error instanceof ActiveCartConflictException || error instanceof InvalidCartStateException), error -> {
+                    log.error("Erro ao criar carrinho com dados completos para usuário {}: {}", request.getUserId(), error.getMessage());
+                    return Mono.error(new CartCreationException(
+                        String.format("Falha ao criar carrinho com dados completos para o usuário: %s - %s", 
+                            request.getUserId(), error.getMessage())));
+                });
+    }
+
+    private Mono<Cart> createFromRequest(CreateCartUserRequest request) {
+        Cart cart = Cart.builder()
+                .id(request.getId())
+                .userId(request.getUserId())
+                .createdAt(request.getCreatedAt())
+                .build();
+        BigDecimal subtotal = fillFromRequest(cart, request);
 
-                    // Calcula o total final após o desconto
-                    BigDecimal finalTotal = subtotal.subtract(discountAmount);
-                    
-                    Cart cart = Cart.builder()
-                            .id(request.getId())
-                            .userId(request.getUserId())
-                            .description(request.getDescription())
-                            .status(CartStatus.valueOf(request.getStatus()))
-                            .createdAt(request.getCreatedAt())
-                            .updatedAt(request.getUpdatedAt())
-                            .items(request.getItems().stream()
-                                    .map(item -> CartItem.builder()
-                                            .id(item.getId())
-                                            .productId(item.getProductId())
-                                            .productName(item.getName())
-                                            .quantity(item.getQuantity())
-                                            .unitPrice(item.getPrice())
-                                            .build())
-                                    .toList())
-                            .totalAmount(finalTotal)
-                            .promoCode(request.getPromoCode())
-                            .discountAmount(discountAmount)
-                            .completedAt(request.getCompletedAt())
-                            .build();
-
-                    return persistCart(cart)
-                            .flatMap(this::publishEvent)
-                            .map(cartMapper::toResponse)
-                            .doOnSuccess(response -> {
-                                log.info("Carrinho criado com sucesso com dados completos para usuário: {}", request.getUserId());
-                                if (discountAmount.compareTo(BigDecimal.ZERO) > 0) {
-                                    log.info("Desconto de R$ 18,00 aplicado ao carrinho: {}", cart.getId());
-                                }
-                            })
-                            .onErrorResume(error -> {
-                                log.error("Erro ao criar carrinho com dados completos para usuário {}: {}", request.getUserId(), error.getMessage());
-                                return Mono.error(new CartCreationException(
-                                    String.format("Falha ao criar carrinho com dados completos para o usuário: %s - %s", 
-                                        request.getUserId(), error.getMessage())));
-                            });
+        AtomicBoolean reserved = new AtomicBoolean();
+        return applyRequestedPromo(cart, subtotal, reserved)
+                // Carrinho não gravado: a reserva do código promocional é devolvida
+                .flatMap(promoCart -> persistCart(promoCart, CartEvent.EventType.CART_CREATED)
+                        .onErrorResume(error -> releaseReserved(reserved, promoCart.getPromoCode(), promoCart.getId())
+                                .then(Mono.error(error))))
+                // Outro carrinho ativo criado concorrentemente: conflito do pedido, não falha de criação
+                .onErrorMap(DuplicateKeyException.class, error -> new ActiveCartConflictException(String.format(
+                        "Usuário %s já possui um carrinho ativo; envie o id desse carrinho ou outro status",
+                        request.getUserId())));
+    }
+
+    // Compare-and-set sobre a versão lida: uma alteração concorrente (item adicionado, cupom aplicado) provoca
+    // nova leitura e a reaplicação dos dados completos, em vez de ser sobrescrita às cegas
+    private Mono<Cart> replaceActiveCart(Cart active, CreateCartUserRequest request) {
+        if (!active.getId().equals(request.getId())) {
+            log.info("Dados completos do usuário {} gravados no carrinho ativo {} em vez de {}",
+                    request.getUserId(), active.getId(), request.getId());
+        }
+        AtomicReference<String> previousCode = new AtomicReference<>();
+        AtomicBoolean reserved = new AtomicBoolean();
+        return writePipeline.write("update", cartUpdater.update(active.getId(), Mono.just(active), CartEvent.EventType.CART_UPDATED, cart -> {
+                    if (cart.getStatus() != CartStatus.ACTIVE) {
+                        return Mono.error(new InvalidCartStateException(cart.getId(), cart.getStatus()));
+                    }
+                    previousCode.set(cart.getPromoCode());
+                    return applyRequestedPromo(cart, fillFromRequest(cart, request), reserved);
+                }))
+                .onErrorResume(error -> releaseReserved(reserved, request.getPromoCode(), active.getId())
+                        .then(Mono.error(error)))
+                // O código do carrinho ativo substituído deixa de ser usado por ele
+                .flatMap(saved -> promoService.releaseReplacedUsage(previousCode.get(), saved.getPromoCode(), saved.getId())
+                        .thenReturn(saved));
+    }
+
+    // Copia os dados do pedido para o carrinho e retorna o subtotal dos itens
+    private BigDecimal fillFromRequest(Cart cart, CreateCartUserRequest request) {
+        BigDecimal subtotal = request.getItems().stream()
+                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        cart.setDescription(request.getDescription());
+        cart.setStatus(CartStatus.valueOf(request.getStatus()));
+        cart.setItems(request.getItems().stream()
+                .map(item -> CartItem.builder()
+                        .id(item.getId())
+                        .productId(item.getProductId())
+                        .productName(item.getName())
+                        .quantity(item.getQuantity())
+                        .unitPrice(item.getPrice())
+                        .build())
+                .collect(Collectors.toCollection(ArrayList::new)));
+        cart.setTotalAmount(subtotal);
+        cart.setPromoCode(request.getPromoCode());
+        cart.setDiscountAmount(BigDecimal.ZERO);
+        cart.setCompletedAt(request.getCompletedAt());
+        cart.setUpdatedAt(request.getUpdatedAt());
+        return subtotal;
+    }
+
+    private Mono<Void> releaseReserved(AtomicBoolean reserved, String promoCode, String cartId) {
+        return reserved.get() ? promoService.releaseUsage(promoCode, cartId) : Mono.empty();
+    }
+
+    // O desconto vem das mesmas regras do ApplyPromoCodeUseCase; código inválido ou esgotado resulta em desconto zero
+    private Mono<Cart> applyRequestedPromo(Cart cart, BigDecimal subtotal, AtomicBoolean reserved) {
+        if (cart.getPromoCode() == null) {
+            return Mono.just(cart);
+        }
+        return promoService.calculateDiscount(cart.getPromoCode(), cart)
+                .flatMap(discount -> promoService.reserveUsage(cart.getPromoCode(), cart.getId())
+                        // Em uma nova tentativa o uso já está marcado: a reserva feita antes continua valendo
+                        .doOnNext(newlyReserved -> {
+                            if (newlyReserved) {
+                                reserved.set(true);
+                            }
+                        })
+                        .thenReturn(discount))
+                .onErrorResume(InvalidRequestException.class, error -> {
+                    log.debug("Código promocional {} não aplicado ao carrinho {}: {}", cart.getPromoCode(), cart.getId(), error.getMessage());
+                    return Mono.just(BigDecimal.ZERO);
+                })
+                .map(discount -> {
+                    cart.setDiscountAmount(discount);
+                    cart.setTotalAmount(subtotal.subtract(discount));
+                    return cart;
                 });
     }
 }
@@ -1,5 +1,6 @@
 package com.webflux.micromerce.cart.application.usecase;
 
+import com.webflux.micromerce.cart.application.service.PromoService;
 import com.webflux.micromerce.cart.domain.model.Cart;
 import com.webflux.micromerce.cart.domain.repository.CartRepository;
 import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
@@ -17,6 +18,7 @@ import java.time.Duration;
 public class DeleteCartUseCase {
     private final CartRepository cartRepository;
     private final RedisService redisService;
+    private final PromoService promoService;
 
     public Mono<Void> execute(String cartId) {
         return cartRepository.findById(cartId)
@@ -47,6 +49,8 @@ public class DeleteCartUseCase {
                 return Mono.empty();
             });
 
-        return Mono.when(redisDelete, mongoDelete);
+        // O uso do código promocional do carrinho removido volta a ficar disponível
+        return Mono.when(redisDelete, mongoDelete)
+            .then(cart.getPromoCode() == null ? Mono.<Void>empty() : promoService.releaseUsage(cart.getPromoCode(), cartId));
     }
 }
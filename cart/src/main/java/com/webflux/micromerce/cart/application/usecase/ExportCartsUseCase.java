@@ -0,0 +1,31 @@
+package com.webflux.micromerce.cart.application.usecase;
+
+import com.webflux.micromerce.cart.application.dto.response.CartResponse;
+import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.domain.repository.CartAnalyticsRepository;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportCartsUseCase {
+
+    private final CartAnalyticsRepository analyticsRepository;
+    private final CartMapper cartMapper;
+
+    // Cada carrinho é convertido e escrito assim que chega do cursor; nada é acumulado em memória
+    public Flux<CartResponse> execute(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            return Flux.error(new InvalidRequestException("Informe um período válido (from anterior a to)"));
+        }
+        return analyticsRepository.streamByCreatedAt(from, to)
+                .map(cartMapper::toResponse)
+                .doOnComplete(() -> log.debug("Exportação dos carrinhos entre {} e {} concluída", from, to));
+    }
+}
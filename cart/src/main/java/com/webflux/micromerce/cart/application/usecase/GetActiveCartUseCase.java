@@ -0,0 +1,104 @@
+package com.webflux.micromerce.cart.application.usecase;
+
+import com.webflux.micromerce.cart.application.dto.response.CartResponse;
+import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.application.service.CartLoader;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import com.webflux.micromerce.cart.infrastructure.cache.SingleFlight;
+import com.webflux.micromerce.cart.infrastructure.redis.ActiveCartPointer;
+import com.webflux.micromerce.cart.presentation.exception.CartNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Carrinho ativo do usuário (cabeçalho da loja): um GET no ponteiro user:{userId}:active-cart e a leitura do
+// carrinho pelo cache. Sem ponteiro, ou com um ponteiro desatualizado, a consulta vai ao MongoDB e o ponteiro
+// é preenchido de novo. Leituras concorrentes do mesmo usuário compartilham a resolução.
+@Slf4j
+@Service
+public class GetActiveCartUseCase {
+
+    private final ActiveCartPointer activeCartPointer;
+    private final CartLoader cartLoader;
+    private final CartRepository cartRepository;
+    private final CartMapper cartMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration noneTtl;
+    private final SingleFlight<String, Optional<Cart>> lookups;
+
+    public GetActiveCartUseCase(ActiveCartPointer activeCartPointer,
+                                CartLoader cartLoader,
+                                CartRepository cartRepository,
+                                CartMapper cartMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${cart.active-cart.ttl:7d}") Duration ttl,
+                                @Value("${cart.active-cart.none-ttl:30s}") Duration noneTtl) {
+        this.activeCartPointer = activeCartPointer;
+        this.cartLoader = cartLoader;
+        this.cartRepository = cartRepository;
+        this.cartMapper = cartMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.noneTtl = noneTtl;
+        this.lookups = new SingleFlight<>(Counter.builder("cart.active-cart.coalesced").register(meterRegistry));
+    }
+
+    public Mono<CartResponse> execute(String userId) {
+        return lookups.execute(userId, () -> resolve(userId))
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(CartNotFoundException.activeCartOf(userId)))
+                .map(cartMapper::toResponse);
+    }
+
+    // Optional vazio: o usuário não tem carrinho ativo
+    private Mono<Optional<Cart>> resolve(String userId) {
+        return activeCartPointer.get(userId)
+                .onErrorResume(error -> {
+                    log.warn("Ponteiro de carrinho ativo indisponível para o usuário {}: {}", userId, error.getMessage());
+                    return Mono.empty();
+                })
+                .flatMap(cartId -> ActiveCartPointer.NONE.equals(cartId)
+                        ? Mono.just(Optional.<Cart>empty()).doOnNext(none -> count("none"))
+                        : fromPointer(userId, cartId).map(Optional::of))
+                .switchIfEmpty(Mono.defer(() -> fromRepository(userId)));
+    }
+
+    private Mono<Cart> fromPointer(String userId, String cartId) {
+        return cartLoader.load(cartId)
+                .filter(cart -> cart.getStatus() == CartStatus.ACTIVE && userId.equals(cart.getUserId()))
+                .doOnNext(cart -> count("pointer"))
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.debug("Ponteiro de carrinho ativo desatualizado para o usuário {}: {}", userId, cartId);
+                    count("stale");
+                    return activeCartPointer.clear(userId, cartId)
+                            .onErrorReturn(false)
+                            .then(Mono.empty());
+                }));
+    }
+
+    // setIfAbsent: uma criação concorrente grava o ponteiro com SET e prevalece sobre este preenchimento
+    private Mono<Optional<Cart>> fromRepository(String userId) {
+        return cartRepository.findByUserIdAndStatus(userId, CartStatus.ACTIVE)
+                .flatMap(cart -> activeCartPointer.setIfAbsent(userId, cart.getId(), ttl)
+                        .onErrorReturn(false)
+                        .doOnNext(stored -> count("fallback"))
+                        .thenReturn(Optional.of(cart)))
+                .switchIfEmpty(Mono.defer(() -> activeCartPointer.setIfAbsent(userId, ActiveCartPointer.NONE, noneTtl)
+                        .onErrorReturn(false)
+                        .doOnNext(stored -> count("missing"))
+                        .thenReturn(Optional.<Cart>empty())));
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("cart.active-cart.lookups", "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,84 @@
+package com.webflux.micromerce.cart.application.usecase;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webflux.micromerce.cart.application.dto.response.CartAnalyticsResponse;
+import com.webflux.micromerce.cart.domain.model.CartAnalytics;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.repository.CartAnalyticsRepository;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Slf4j
+@Service
+public class GetCartAnalyticsUseCase {
+
+    private static final Duration DEFAULT_PERIOD = Duration.ofDays(30);
+
+    private final CartAnalyticsRepository analyticsRepository;
+    // Resultados recentes por período; requisições concorrentes do mesmo período compartilham a agregação
+    private final AsyncCache<Period, CartAnalyticsResponse> cache;
+
+    public GetCartAnalyticsUseCase(CartAnalyticsRepository analyticsRepository,
+                                   @Value("${cart.analytics.cache-ttl:60s}") Duration cacheTtl) {
+        this.analyticsRepository = analyticsRepository;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(256)
+                .buildAsync();
+    }
+
+    // Sem período informado, considera os últimos 30 dias até o minuto atual (o que permite reaproveitar o cache)
+    public Mono<CartAnalyticsResponse> execute(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime start = from != null ? from : end.minus(DEFAULT_PERIOD);
+        if (!start.isBefore(end)) {
+            return Mono.error(new InvalidRequestException("O início do período deve ser anterior ao fim"));
+        }
+        // Uma agregação que falha não fica no cache; o cancelamento de um assinante não cancela a agregação compartilhada
+        return Mono.fromFuture(() -> cache.get(new Period(start, end), (period, executor) -> analyticsRepository
+                        .aggregate(period.from(), period.to())
+                        .map(analytics -> toResponse(period, analytics))
+                        .toFuture()), true)
+                .doOnError(error -> log.error("Erro ao calcular analytics dos carrinhos entre {} e {}: {}", start, end, error.getMessage()));
+    }
+
+    private CartAnalyticsResponse toResponse(Period period, CartAnalytics analytics) {
+        long total = 0;
+        long items = 0;
+        long abandoned = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (CartAnalytics.StatusStats stats : analytics.getByStatus()) {
+            total += stats.getCount();
+            items += stats.getItems();
+            if (stats.getStatus() == CartStatus.ABANDONED) {
+                abandoned = stats.getCount();
+            }
+            // Receita considera apenas carrinhos finalizados
+            if (stats.getStatus() == CartStatus.COMPLETED && stats.getRevenue() != null) {
+                revenue = revenue.add(stats.getRevenue());
+            }
+        }
+        return new CartAnalyticsResponse(
+                period.from(),
+                period.to(),
+                total,
+                revenue,
+                total == 0 ? 0 : (double) items / total,
+                total == 0 ? 0 : (double) abandoned / total,
+                analytics.getByStatus(),
+                analytics.getByDay(),
+                analytics.getItemDistribution());
+    }
+
+    private record Period(LocalDateTime from, LocalDateTime to) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.webflux.micromerce.cart.application.usecase;
+
+import com.webflux.micromerce.cart.application.dto.response.CartSummaryResponse;
+import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Service
+public class GetUserCartSummariesUseCase {
+
+    private final CartRepository cartRepository;
+    private final CartMapper cartMapper;
+    private final int maxPageSize;
+
+    public GetUserCartSummariesUseCase(CartRepository cartRepository,
+                                       CartMapper cartMapper,
+                                       @Value("${cart.summaries.max-page-size:100}") int maxPageSize) {
+        this.cartRepository = cartRepository;
+        this.cartMapper = cartMapper;
+        this.maxPageSize = maxPageSize;
+    }
+
+    // A próxima página é pedida com o createdAt e o id do último resumo recebido
+    public Flux<CartSummaryResponse> execute(String userId, LocalDateTime before, String beforeId, int limit) {
+        if (limit < 1) {
+            return Flux.error(new InvalidRequestException("O limite deve ser positivo"));
+        }
+        return cartRepository.findSummariesByUserId(userId, before, beforeId, Math.min(limit, maxPageSize))
+                .map(cartMapper::toSummaryResponse)
+                .doOnComplete(() -> log.debug("Resumo dos carrinhos do usuário {} recuperado", userId))
+                .doOnError(error -> log.error("Erro ao recuperar resumo dos carrinhos do usuário {}: {}", userId, error.getMessage()));
+    }
+}
@@ -30,7 +30,6 @@ public class GetUserCartsUseCase {
 
     private Flux<Cart> findCartsFromCache(String userId) {
         return redisService.getUserCarts(userId)
-                .flatMap(cartId -> redisService.getCart(String.valueOf(cartId)))
                 .doOnNext(cart -> log.debug("Carrinho {} encontrado no Redis para o usuário {}", cart.getId(), userId))
                 .onErrorResume(error -> {
                     log.error("Erro ao recuperar carrinhos do Redis para o usuário {}: {}", userId, error.getMessage());
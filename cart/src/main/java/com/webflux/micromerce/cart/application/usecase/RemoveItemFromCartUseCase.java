@@ -2,8 +2,13 @@ package com.webflux.micromerce.cart.application.usecase;
 
 import com.webflux.micromerce.cart.application.dto.response.CartResponse;
 import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.application.service.CartWritePipeline;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
 import com.webflux.micromerce.cart.domain.repository.CartRepository;
 import com.webflux.micromerce.cart.presentation.exception.CartNotFoundException;
+import com.webflux.micromerce.cart.presentation.exception.InvalidCartStateException;
+import com.webflux.micromerce.cart.presentation.exception.ItemNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -13,15 +18,20 @@ import reactor.core.publisher.Mono;
 public class RemoveItemFromCartUseCase {
     private final CartRepository cartRepository;
     private final CartMapper cartMapper;
+    private final CartWritePipeline writePipeline;
 
     public Mono<CartResponse> execute(String cartId, String itemId) {
+        return writePipeline.write("remove-item", cartRepository.pullItem(cartId, itemId)
+                        .switchIfEmpty(Mono.defer(() -> resolveFailedRemoval(cartId, itemId))))
+                .map(cartMapper::toResponse);
+    }
+
+    // A remoção atômica não casou: identifica se o carrinho não existe, não está ativo ou não tem o item
+    private Mono<Cart> resolveFailedRemoval(String cartId, String itemId) {
         return cartRepository.findById(cartId)
                 .switchIfEmpty(Mono.error(new CartNotFoundException(cartId)))
-                .map(cart -> {
-                    cart.removeItem(itemId);
-                    return cart;
-                })
-                .flatMap(cartRepository::save)
-                .map(cartMapper::toResponse);
+                .flatMap(cart -> Mono.<Cart>error(cart.getStatus() != CartStatus.ACTIVE
+                        ? new InvalidCartStateException(cart.getId(), cart.getStatus())
+                        : ItemNotFoundException.withItemId(itemId)));
     }
 }
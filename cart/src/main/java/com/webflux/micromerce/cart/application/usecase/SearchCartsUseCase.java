@@ -0,0 +1,131 @@
+package com.webflux.micromerce.cart.application.usecase;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webflux.micromerce.cart.application.dto.request.CartSearchRequest;
+import com.webflux.micromerce.cart.application.dto.response.CartSearchResponse;
+import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.domain.model.CartSearchCriteria;
+import com.webflux.micromerce.cart.domain.model.CartSearchResult;
+import com.webflux.micromerce.cart.domain.repository.CartSearchRepository;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+@Service
+public class SearchCartsUseCase {
+
+    private static final Set<String> DATE_FIELDS = Set.of("createdAt", "updatedAt");
+    private static final Set<String> SORT_FIELDS = Set.of("createdAt", "updatedAt", "totalAmount");
+    private static final TypeReference<List<Object>> CURSOR_TYPE = new TypeReference<>() {
+    };
+
+    private final CartSearchRepository searchRepository;
+    private final CartMapper cartMapper;
+    private final ObjectMapper objectMapper;
+    private final int maxPageSize;
+    // Painéis de suporte repetem as mesmas buscas; requisições concorrentes iguais compartilham a consulta
+    private final AsyncCache<CartSearchCriteria, CartSearchResponse> cache;
+
+    public SearchCartsUseCase(CartSearchRepository searchRepository,
+                              CartMapper cartMapper,
+                              ObjectMapper objectMapper,
+                              @Value("${cart.search.max-page-size:100}") int maxPageSize,
+                              @Value("${cart.search.cache-ttl:30s}") Duration cacheTtl) {
+        this.searchRepository = searchRepository;
+        this.cartMapper = cartMapper;
+        this.objectMapper = objectMapper;
+        this.maxPageSize = maxPageSize;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(1024)
+                .buildAsync();
+    }
+
+    public Mono<CartSearchResponse> execute(CartSearchRequest request) {
+        CartSearchCriteria criteria;
+        try {
+            criteria = toCriteria(request);
+        } catch (InvalidRequestException e) {
+            return Mono.error(e);
+        }
+        return Mono.fromFuture(() -> cache.get(criteria, (key, executor) -> searchRepository.search(key)
+                        .map(this::toResponse)
+                        .toFuture()), true)
+                .doOnError(error -> log.error("Erro ao buscar carrinhos no Elasticsearch: {}", error.getMessage()));
+    }
+
+    private CartSearchCriteria toCriteria(CartSearchRequest request) {
+        if (request.getSize() < 1) {
+            throw new InvalidRequestException("O tamanho da página deve ser positivo");
+        }
+        if (!DATE_FIELDS.contains(request.getDateField())) {
+            throw new InvalidRequestException("Campo de data inválido: " + request.getDateField());
+        }
+        if (!SORT_FIELDS.contains(request.getSortBy())) {
+            throw new InvalidRequestException("Campo de ordenação inválido: " + request.getSortBy());
+        }
+        if (request.getFrom() != null && request.getTo() != null && !request.getFrom().isBefore(request.getTo())) {
+            throw new InvalidRequestException("O início do período deve ser anterior ao fim");
+        }
+        if (request.getMinTotal() != null && request.getMaxTotal() != null
+                && request.getMinTotal().compareTo(request.getMaxTotal()) > 0) {
+            throw new InvalidRequestException("O valor mínimo deve ser menor ou igual ao máximo");
+        }
+        return CartSearchCriteria.builder()
+                .userId(request.getUserId())
+                .productId(request.getProductId())
+                .status(request.getStatus())
+                .minTotal(request.getMinTotal())
+                .maxTotal(request.getMaxTotal())
+                .dateField(request.getDateField())
+                .from(request.getFrom())
+                .to(request.getTo())
+                .sortBy(request.getSortBy())
+                .size(Math.min(request.getSize(), maxPageSize))
+                .searchAfter(decodeCursor(request.getCursor()))
+                .build();
+    }
+
+    private CartSearchResponse toResponse(CartSearchResult result) {
+        return new CartSearchResponse(
+                result.getTotal(),
+                result.getCarts().stream().map(cartMapper::toResponse).toList(),
+                encodeCursor(result.getNextSearchAfter()),
+                result.getAggregations());
+    }
+
+    // Cursor opaco: valores de ordenação do último resultado em JSON, codificados em Base64 URL-safe
+    private String encodeCursor(List<Object> searchAfter) {
+        if (searchAfter == null || searchAfter.isEmpty()) {
+            return null;
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(searchAfter));
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao gerar o cursor da busca", e);
+        }
+    }
+
+    private List<Object> decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), CURSOR_TYPE);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidRequestException("Cursor de busca inválido");
+        }
+    }
+}
@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
 
 @Data
 @Builder
-public class CartCreatedEvent {
+public final class CartCreatedEvent implements CartEvent {
     private String eventId;
     private String cartId;
     private String userId;
@@ -21,7 +21,7 @@ public class CartCreatedEvent {
                 .eventId(java.util.UUID.randomUUID().toString())
                 .cartId(cart.getId())
                 .userId(cart.getUserId())
-                .eventType("CART_CREATED")
+                .eventType(EventType.CART_CREATED)
                 .timestamp(LocalDateTime.now())
                 .cart(cart)
                 .build();
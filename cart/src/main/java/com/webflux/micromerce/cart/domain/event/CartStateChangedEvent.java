@@ -0,0 +1,19 @@
+package com.webflux.micromerce.cart.domain.event;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+// Alteração de estado de um carrinho já existente, com o carrinho na versão cartVersion
+@Value
+@Builder
+public class CartStateChangedEvent implements CartEvent {
+    String eventId;
+    String cartId;
+    String eventType;
+    LocalDateTime timestamp;
+    Long cartVersion;
+    Cart cart;
+}
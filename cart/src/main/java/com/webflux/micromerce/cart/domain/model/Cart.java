@@ -1,20 +1,29 @@
 package com.webflux.micromerce.cart.domain.model;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "carts")
@@ -32,6 +41,8 @@ public class Cart {
 
     private LocalDateTime updatedAt;
 
+    // Armazenado como Decimal128 para permitir $inc atômico no MongoDB
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal totalAmount;
 
     @Builder.Default
@@ -43,54 +54,105 @@ public class Cart {
 
     private LocalDateTime completedAt;
 
+    // Versão usada como compare-and-set em CartRepository.update
+    private Long version;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient CartItemIndex itemIndex;
+
     public void addItem(CartItem item) {
-        item.setId(UUID.randomUUID().toString());
+        if (item.getId() == null) {
+            item.setId(UUID.randomUUID().toString());
+        }
+        CartItemIndex index = itemIndex();
         this.items.add(item);
-        recalculateTotal();
+        index.add(item);
+        adjustTotal(item.getUnitPrice(), item.getQuantity());
     }
 
     public void removeItem(String itemId) {
-        items.removeIf(item -> item.getId().equals(itemId));
-        recalculateTotal();
+        CartItem item = itemIndex().remove(itemId);
+        if (item == null) {
+            return;
+        }
+        items.removeIf(candidate -> candidate == item);
+        adjustTotal(item.getUnitPrice(), -item.getQuantity());
     }
 
     public void updateItemQuantity(String itemId, int quantity) {
-        items.stream()
-                .filter(item -> item.getId().equals(itemId))
-                .findFirst()
-                .ifPresent(item -> {
-                    item.setQuantity(quantity);
-                    recalculateTotal();
-                });
+        CartItem item = itemIndex().get(itemId);
+        if (item == null) {
+            return;
+        }
+        int delta = quantity - item.getQuantity();
+        item.setQuantity(quantity);
+        adjustTotal(item.getUnitPrice(), delta);
     }
 
+    // Recalcula o total do zero e descarta o índice; deve ser chamado após alterar a lista de itens diretamente
     public void recalculateTotal() {
-        this.totalAmount = items.stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        if (this.discountAmount != null && this.discountAmount.compareTo(BigDecimal.ZERO) > 0) {
-            this.totalAmount = this.totalAmount.subtract(this.discountAmount);
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem item : items) {
+            total = total.add(item.getSubtotal());
         }
-        
+        this.totalAmount = total.subtract(effectiveDiscount(discountAmount));
+        this.itemIndex = null;
         this.updatedAt = LocalDateTime.now();
     }
 
     public void applyPromoCode(String promoCode, BigDecimal discount) {
+        BigDecimal previousDiscount = effectiveDiscount(this.discountAmount);
         this.promoCode = promoCode;
         this.discountAmount = discount;
-        recalculateTotal();
+        if (this.totalAmount == null) {
+            recalculateTotal();
+            return;
+        }
+        this.totalAmount = this.totalAmount.add(previousDiscount).subtract(effectiveDiscount(discount));
+        this.updatedAt = LocalDateTime.now();
     }
 
     public CartItem findItemById(String itemId) {
-        return items.stream()
-                .filter(item -> item.getId().equals(itemId))
-                .findFirst()
-                .orElse(null);
+        return itemIndex().get(itemId);
+    }
+
+    public Cart copy() {
+        return this.toBuilder()
+                .items(items.stream()
+                        .map(item -> item.toBuilder().build())
+                        .collect(Collectors.toCollection(ArrayList::new)))
+                .build();
     }
 
     public void setCompletedAt(LocalDateTime completedAt) {
         this.completedAt = completedAt;
         this.updatedAt = LocalDateTime.now();
     }
+
+    // O total é mantido por diferença: só o item alterado entra na conta
+    private void adjustTotal(BigDecimal unitPrice, int quantityDelta) {
+        if (this.totalAmount == null) {
+            recalculateTotal();
+            return;
+        }
+        if (quantityDelta != 0) {
+            this.totalAmount = this.totalAmount.add(unitPrice.multiply(BigDecimal.valueOf(quantityDelta)));
+        }
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    private CartItemIndex itemIndex() {
+        if (itemIndex == null || !itemIndex.covers(items)) {
+            itemIndex = CartItemIndex.of(items);
+        }
+        return itemIndex;
+    }
+
+    private static BigDecimal effectiveDiscount(BigDecimal discount) {
+        return discount != null && discount.compareTo(BigDecimal.ZERO) > 0 ? discount : BigDecimal.ZERO;
+    }
 }
@@ -0,0 +1,57 @@
+package com.webflux.micromerce.cart.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Agregados dos carrinhos criados em um período, calculados no MongoDB
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartAnalytics {
+
+    @Builder.Default
+    private List<StatusStats> byStatus = new ArrayList<>();
+
+    @Builder.Default
+    private List<DailyStats> byDay = new ArrayList<>();
+
+    @Builder.Default
+    private List<ItemBucket> itemDistribution = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StatusStats {
+        private CartStatus status;
+        private long count;
+        private BigDecimal revenue;
+        private long items;
+    }
+
+    // day no formato yyyy-MM-dd (UTC)
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DailyStats {
+        private String day;
+        private CartStatus status;
+        private long count;
+        private BigDecimal revenue;
+    }
+
+    // Carrinhos com quantidade de itens a partir de minItems (até o limite inferior do próximo bucket)
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemBucket {
+        private int minItems;
+        private long count;
+    }
+}
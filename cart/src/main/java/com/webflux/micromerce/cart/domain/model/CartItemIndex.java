@@ -0,0 +1,51 @@
+package com.webflux.micromerce.cart.domain.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Índice id → item de um Cart. Guarda a lista e o tamanho que indexou para detectar quando a lista
+// foi trocada ou alterada fora dos métodos do Cart e precisa ser reindexada.
+final class CartItemIndex {
+
+    private final List<CartItem> items;
+    private final Map<String, CartItem> itemsById;
+    private int size;
+
+    private CartItemIndex(List<CartItem> items) {
+        this.items = items;
+        this.itemsById = new HashMap<>(Math.max(16, items.size() * 2));
+        for (CartItem item : items) {
+            if (item.getId() != null) {
+                itemsById.put(item.getId(), item);
+            }
+        }
+        this.size = items.size();
+    }
+
+    static CartItemIndex of(List<CartItem> items) {
+        return new CartItemIndex(items);
+    }
+
+    boolean covers(List<CartItem> items) {
+        return this.items == items && this.size == items.size();
+    }
+
+    CartItem get(String itemId) {
+        return itemId == null ? null : itemsById.get(itemId);
+    }
+
+    void add(CartItem item) {
+        itemsById.put(item.getId(), item);
+        size++;
+    }
+
+    CartItem remove(String itemId) {
+        CartItem item = get(itemId);
+        if (item != null) {
+            itemsById.remove(itemId);
+            size--;
+        }
+        return item;
+    }
+}
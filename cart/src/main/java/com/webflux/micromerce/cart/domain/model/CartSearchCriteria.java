@@ -0,0 +1,27 @@
+package com.webflux.micromerce.cart.domain.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Filtros da busca de carrinhos; campos nulos não filtram. O período [from, to) é aplicado em dateField
+// e a ordenação é decrescente em sortBy. searchAfter traz os valores de ordenação do último resultado
+// da página anterior; sem ele a busca também calcula as agregações.
+@Value
+@Builder
+public class CartSearchCriteria {
+    String userId;
+    String productId;
+    CartStatus status;
+    BigDecimal minTotal;
+    BigDecimal maxTotal;
+    String dateField;
+    LocalDateTime from;
+    LocalDateTime to;
+    String sortBy;
+    int size;
+    List<Object> searchAfter;
+}
@@ -0,0 +1,64 @@
+package com.webflux.micromerce.cart.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Página de uma busca de carrinhos no Elasticsearch; aggregations só vem na primeira página
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSearchResult {
+
+    @Builder.Default
+    private List<Cart> carts = new ArrayList<>();
+
+    private long total;
+
+    // Valores de ordenação do último carrinho da página; nulo quando não há próxima página
+    private List<Object> nextSearchAfter;
+
+    private Aggregations aggregations;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Aggregations {
+        @Builder.Default
+        private List<Bucket> byStatus = new ArrayList<>();
+
+        // key no formato yyyy-MM-dd, pelo campo de data da busca
+        @Builder.Default
+        private List<Bucket> byDay = new ArrayList<>();
+
+        @Builder.Default
+        private List<Bucket> topProducts = new ArrayList<>();
+
+        private AmountStats totalAmount;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        private String key;
+        private long count;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AmountStats {
+        private long count;
+        private double min;
+        private double max;
+        private double avg;
+        private double sum;
+    }
+}
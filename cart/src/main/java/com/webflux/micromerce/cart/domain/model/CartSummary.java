@@ -0,0 +1,32 @@
+package com.webflux.micromerce.cart.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Visão resumida de um carrinho, sem os itens
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSummary {
+    @Id
+    private String id;
+
+    private CartStatus status;
+
+    private BigDecimal totalAmount;
+
+    private BigDecimal discountAmount;
+
+    private int itemCount;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
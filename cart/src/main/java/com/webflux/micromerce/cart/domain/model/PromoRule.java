@@ -0,0 +1,51 @@
+package com.webflux.micromerce.cart.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+// Regra de um código promocional. O id é o próprio código.
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "promo_rules")
+public class PromoRule {
+    @Id
+    private String code;
+
+    private DiscountType discountType;
+
+    // Percentual (0-100) ou valor fixo, conforme discountType
+    private BigDecimal value;
+
+    // Subtotal mínimo do carrinho para o código valer
+    private BigDecimal minSubtotal;
+
+    // Vazio: o desconto incide sobre o carrinho inteiro; caso contrário só sobre os itens desses produtos
+    @Builder.Default
+    private Set<String> productIds = new HashSet<>();
+
+    private Instant startsAt;
+
+    private Instant expiresAt;
+
+    // Número máximo de carrinhos que podem usar o código; nulo = sem limite
+    private Long usageLimit;
+
+    @Builder.Default
+    private boolean active = true;
+
+    public enum DiscountType {
+        PERCENT,
+        FIXED
+    }
+}
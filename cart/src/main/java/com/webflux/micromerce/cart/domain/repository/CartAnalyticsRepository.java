@@ -0,0 +1,16 @@
+package com.webflux.micromerce.cart.domain.repository;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartAnalytics;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+// Consultas de leitura sobre todos os carrinhos de um período; o intervalo é [from, to)
+public interface CartAnalyticsRepository {
+    Mono<CartAnalytics> aggregate(LocalDateTime from, LocalDateTime to);
+
+    // Em ordem de createdAt, lido do cursor em lotes conforme a demanda do assinante
+    Flux<Cart> streamByCreatedAt(LocalDateTime from, LocalDateTime to);
+}
@@ -1,23 +1,41 @@
 package com.webflux.micromerce.cart.domain.repository;
 
 import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
 import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.model.CartSummary;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public interface CartRepository {
     Mono<Cart> save(Cart cart);
+    // Grava também, no mesmo documento, um evento do tipo informado no outbox do carrinho
+    Mono<Cart> save(Cart cart, String eventType);
     Mono<Cart> findById(String id);
 
     Mono<Cart> update(Cart cart);
+    // Grava também, na mesma atualização do documento, um evento do tipo informado no outbox do carrinho
+    Mono<Cart> update(Cart cart, String eventType);
 
     Mono<Void> deleteById(String id);
     Flux<Cart> findAll();
     Flux<Cart> findByUserId(String userId);
+    // Paginação por keyset em (createdAt, id) decrescente; before/beforeId nulos começam do carrinho mais recente
+    Flux<CartSummary> findSummariesByUserId(String userId, LocalDateTime before, String beforeId, int limit);
     Mono<Cart> findByUserIdAndStatus(String userId, CartStatus status);
+    // Projeção: traz apenas id, userId, status, totalAmount e datas, sem os itens
     Flux<Cart> findAbandonedCarts(CartStatus status, LocalDateTime threshold);
+    // Marca como ABANDONED os carrinhos ainda ativos e sem alteração desde o threshold; retorna os ids alterados
+    Flux<String> markAbandoned(List<String> cartIds, LocalDateTime threshold);
     Flux<Cart> findByUserIdAndStatusBetweenDates(String userId, CartStatus status, LocalDateTime startDate, LocalDateTime endDate);
     Flux<Cart> findByStatus(CartStatus status);
+
+    // Operações atômicas sobre os itens: retornam o carrinho atualizado ou vazio quando o filtro não casa
+    Mono<Cart> pushItem(String cartId, CartItem item);
+    Mono<Cart> pushItems(String cartId, List<CartItem> items);
+    Mono<Cart> setItemQuantity(String cartId, String productId, int quantity);
+    Mono<Cart> pullItem(String cartId, String itemId);
 }
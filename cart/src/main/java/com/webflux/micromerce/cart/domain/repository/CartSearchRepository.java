@@ -0,0 +1,10 @@
+package com.webflux.micromerce.cart.domain.repository;
+
+import com.webflux.micromerce.cart.domain.model.CartSearchCriteria;
+import com.webflux.micromerce.cart.domain.model.CartSearchResult;
+import reactor.core.publisher.Mono;
+
+// Busca sobre a cópia dos carrinhos indexada fora do MongoDB, para leituras analíticas
+public interface CartSearchRepository {
+    Mono<CartSearchResult> search(CartSearchCriteria criteria);
+}
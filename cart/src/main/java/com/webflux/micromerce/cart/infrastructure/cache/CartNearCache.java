@@ -0,0 +1,100 @@
+package com.webflux.micromerce.cart.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.UUID;
+
+@Slf4j
+@Component
+public class CartNearCache {
+
+    private static final String INVALIDATION_CHANNEL = "cart-cache-invalidation";
+    private static final String SEPARATOR = "|";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Cache<String, Cart> cache;
+    private final String nodeId = UUID.randomUUID().toString();
+    private Disposable invalidationSubscription;
+
+    public CartNearCache(ReactiveStringRedisTemplate redisTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${cache.near.max-weight:50000}") long maxWeight,
+                         @Value("${cache.near.ttl:30s}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        // O peso de cada entrada é proporcional ao número de itens do carrinho
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String cartId, Cart cart) -> 1 + cart.getItems().size())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "cart.near-cache");
+    }
+
+    @PostConstruct
+    public void subscribeToInvalidations() {
+        invalidationSubscription = redisTemplate.listenToChannel(INVALIDATION_CHANNEL)
+                .map(message -> message.getMessage())
+                .filter(payload -> !payload.startsWith(nodeId + SEPARATOR))
+                .map(payload -> payload.substring(payload.indexOf(SEPARATOR) + 1))
+                .doOnNext(cartId -> {
+                    cache.invalidate(cartId);
+                    log.debug("Carrinho {} invalidado no cache local por outro nó", cartId);
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Reconectando ao canal de invalidação do cache local: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (invalidationSubscription != null) {
+            invalidationSubscription.dispose();
+        }
+    }
+
+    // As entradas são cópias, para que os use cases possam alterar o carrinho retornado sem afetar o cache
+    public Mono<Cart> get(String cartId) {
+        return Mono.fromSupplier(() -> {
+            Cart cart = cache.getIfPresent(cartId);
+            return cart != null ? cart.copy() : null;
+        });
+    }
+
+    public void put(Cart cart) {
+        cache.put(cart.getId(), cart.copy());
+    }
+
+    public Mono<Void> invalidate(String cartId) {
+        cache.invalidate(cartId);
+        return publishInvalidation(cartId);
+    }
+
+    public Mono<Void> replace(Cart cart) {
+        put(cart);
+        return publishInvalidation(cart.getId());
+    }
+
+    private Mono<Void> publishInvalidation(String cartId) {
+        return redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + SEPARATOR + cartId)
+                .doOnError(error -> log.error("Erro ao publicar invalidação do carrinho {}: {}", cartId, error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+}
@@ -2,15 +2,14 @@ package com.webflux.micromerce.cart.infrastructure.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.webflux.micromerce.cart.application.dto.response.CartResponse;
-import com.webflux.micromerce.cart.domain.event.CartCreatedEvent;
+import com.webflux.micromerce.cart.infrastructure.serialization.CompactCodec;
+import com.webflux.micromerce.cart.infrastructure.serialization.CompactKafkaSerializer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.kafka.core.reactive.ReactiveKafkaProducerTemplate;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+import reactor.kafka.sender.KafkaSender;
 import reactor.kafka.sender.SenderOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +33,18 @@ public class KafkaConfig {
     @Value("${spring.kafka.producer.buffer-memory:33554432}")
     private Integer bufferMemory;
 
+    @Value("${spring.kafka.producer.properties.linger.ms:10}")
+    private Integer lingerMs;
+
+    @Value("${spring.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${cart.events.max-in-flight:256}")
+    private Integer maxInFlight;
+
+    @Value("${cart.codec.kafka.format:JSON}")
+    private CompactCodec.Format eventFormat;
+
     @Bean
     public ObjectMapper kafkaObjectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -41,50 +52,34 @@ public class KafkaConfig {
         return mapper;
     }
 
-    @Bean
-    public Map<String, Object> producerConfigs() {
+    // Produtor único do serviço de carrinho, compartilhado por todos os eventos publicados pelo CartEventBus;
+    // o serializador do valor é o CompactKafkaSerializer, definido nas SenderOptions
+    @Bean(destroyMethod = "close")
+    public KafkaSender<String, Object> cartKafkaSender() {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
         props.put(ProducerConfig.RETRIES_CONFIG, retries);
         props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
         props.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
         props.put(ProducerConfig.ACKS_CONFIG, "all");
         props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
-        props.put(JsonSerializer.TYPE_MAPPINGS, 
-            "cartResponse:com.webflux.micromerce.cart.application.dto.response.CartResponse," +
-            "cartCreatedEvent:com.webflux.micromerce.cart.domain.event.CartCreatedEvent");
-        
-        logger.info("Configurando Kafka producer com bootstrap servers: {}", bootstrapServers);
-        return props;
-    }
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        // Com idempotência, até 5 requisições em voo por conexão preservam a ordem por partição
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
 
-    @Bean(name = "cartResponseKafkaTemplate")
-    public ReactiveKafkaProducerTemplate<String, CartResponse> cartResponseKafkaTemplate() {
-        Map<String, Object> props = producerConfigs();
-        
-        JsonSerializer<CartResponse> valueSerializer = new JsonSerializer<>(kafkaObjectMapper());
-        valueSerializer.setAddTypeInfo(false);
-        
-        SenderOptions<String, CartResponse> senderOptions = SenderOptions
-            .<String, CartResponse>create(props)
-            .withValueSerializer(valueSerializer);
-
-        return new ReactiveKafkaProducerTemplate<>(senderOptions);
-    }
+        // JSON mantém o payload idêntico ao do JsonSerializer; a compressão fica a cargo do produtor (compression.type)
+        CompactCodec codec = new CompactCodec(kafkaObjectMapper(), eventFormat, CompactCodec.Compression.NONE, 0);
 
-    @Bean(name = "cartEventKafkaTemplate")
-    public ReactiveKafkaProducerTemplate<String, CartCreatedEvent> cartEventKafkaTemplate() {
-        Map<String, Object> props = producerConfigs();
-        
-        JsonSerializer<CartCreatedEvent> valueSerializer = new JsonSerializer<>(kafkaObjectMapper());
-        valueSerializer.setAddTypeInfo(false);
-        
-        SenderOptions<String, CartCreatedEvent> senderOptions = SenderOptions
-            .<String, CartCreatedEvent>create(props)
-            .withValueSerializer(valueSerializer);
-
-        return new ReactiveKafkaProducerTemplate<>(senderOptions);
+        SenderOptions<String, Object> senderOptions = SenderOptions
+            .<String, Object>create(props)
+            .withValueSerializer(new CompactKafkaSerializer(codec))
+            .maxInFlight(maxInFlight)
+            // Falhas voltam no SenderResult de cada registro em vez de encerrar o envio em lote
+            .stopOnError(false);
+
+        logger.info("Configurando Kafka producer com bootstrap servers: {}", bootstrapServers);
+        return KafkaSender.create(senderOptions);
     }
 }
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.infrastructure.serialization.CompactCodec;
+import com.webflux.micromerce.cart.infrastructure.serialization.CompactRedisSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
@@ -13,7 +15,6 @@ import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -42,13 +43,23 @@ public class RedisConfig {
         return new LettuceConnectionFactory(configuration);
     }
 
+    // Entradas antigas em JSON continuam legíveis com qualquer formato configurado
+    @Bean
+    public CompactCodec redisCartCodec(
+            ObjectMapper redisObjectMapper,
+            @Value("${cart.codec.redis.format:SMILE}") CompactCodec.Format format,
+            @Value("${cart.codec.redis.compression:LZ4}") CompactCodec.Compression compression,
+            @Value("${cart.codec.redis.compression-threshold:1024}") int compressionThreshold) {
+        return new CompactCodec(redisObjectMapper, format, compression, compressionThreshold);
+    }
+
     @Bean(name = "cartReactiveRedisTemplate")
     public ReactiveRedisTemplate<String, Cart> cartReactiveRedisTemplate(
             ReactiveRedisConnectionFactory connectionFactory,
-            ObjectMapper redisObjectMapper) {
+            CompactCodec redisCartCodec) {
 
         StringRedisSerializer keySerializer = new StringRedisSerializer();
-        Jackson2JsonRedisSerializer<Cart> valueSerializer = new Jackson2JsonRedisSerializer<>(redisObjectMapper, Cart.class);
+        CompactRedisSerializer<Cart> valueSerializer = new CompactRedisSerializer<>(redisCartCodec, Cart.class);
 
         RedisSerializationContext.RedisSerializationContextBuilder<String, Cart> builder =
                 RedisSerializationContext.newSerializationContext(keySerializer);
@@ -16,7 +16,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @Data
 @Builder
@@ -28,8 +27,13 @@ public class CartDocument {
     @Id
     private String id;
 
+    // Cópia do id como keyword: desempate da ordenação na paginação por search_after (_id não é ordenável)
     @Field(type = FieldType.Keyword)
-    private UUID userId;
+    private String cartId;
+
+    // Nem todo userId é UUID (ex.: carrinho criado em AddItemToCartUseCase usa o próprio id do carrinho)
+    @Field(type = FieldType.Keyword)
+    private String userId;
 
     @Field(type = FieldType.Text)
     private String description;
@@ -62,7 +66,8 @@ public class CartDocument {
     public static CartDocument fromDomain(Cart cart) {
         return CartDocument.builder()
                 .id(cart.getId())
-                .userId(UUID.fromString(cart.getUserId()))
+                .cartId(cart.getId())
+                .userId(cart.getUserId())
                 .description(cart.getDescription())
                 .totalAmount(cart.getTotalAmount())
                 .status(cart.getStatus())
@@ -78,7 +83,7 @@ public class CartDocument {
     public Cart toDomain() {
         return Cart.builder()
                 .id(this.id)
-                .userId(String.valueOf(this.userId))
+                .userId(this.userId)
                 .description(this.description)
                 .totalAmount(this.totalAmount)
                 .status(this.status)
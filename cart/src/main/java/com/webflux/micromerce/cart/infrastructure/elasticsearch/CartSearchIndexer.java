@@ -0,0 +1,333 @@
+package com.webflux.micromerce.cart.infrastructure.elasticsearch;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.infrastructure.document.CartDocument;
+import com.webflux.micromerce.cart.infrastructure.persistence.CartChangeStamp;
+import com.webflux.micromerce.cart.infrastructure.repository.ElasticsearchCartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ReactiveElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.SystemVariable;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+// Mantém o índice carts do Elasticsearch em sincronia com a coleção carts fora do caminho das requisições.
+// As alterações vêm de um change stream (exige replica set) ou, com MongoDB standalone, de uma leitura
+// por keyset em (changedAt, _id), marca gravada pelo relógio do servidor em toda escrita. São indexadas em
+// lotes via bulk, e a posição (resume token ou último changedAt/_id) é gravada em indexer_checkpoints após
+// cada lote, permitindo retomar após um reinício. O polling não enxerga remoções (DELETE, índices TTL):
+// uma reconciliação periódica remove do Elasticsearch os carrinhos que não existem mais no MongoDB.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cart.indexer.enabled", havingValue = "true", matchIfMissing = true)
+public class CartSearchIndexer {
+
+    private static final String CHECKPOINT_COLLECTION = "indexer_checkpoints";
+    private static final String CHECKPOINT_ID = "carts-elasticsearch";
+    private static final String SOURCE_CHANGE_STREAM = "change-stream";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ElasticsearchCartRepository elasticsearchCartRepository;
+    private final ReactiveElasticsearchOperations elasticsearchOperations;
+    private final String collection;
+    private final String source;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration pollInterval;
+    private final Duration settleTime;
+    private final Duration reconcileInterval;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final Counter indexed;
+    private final Counter deleted;
+    private final Counter failures;
+    private final Timer lag;
+    private Disposable subscription;
+    private Disposable reconciliation;
+
+    public CartSearchIndexer(ReactiveMongoTemplate mongoTemplate,
+                             ElasticsearchCartRepository elasticsearchCartRepository,
+                             ReactiveElasticsearchOperations elasticsearchOperations,
+                             MeterRegistry meterRegistry,
+                             @Value("${cart.indexer.source:polling}") String source,
+                             @Value("${cart.indexer.batch-size:500}") int batchSize,
+                             @Value("${cart.indexer.flush-interval:1s}") Duration flushInterval,
+                             @Value("${cart.indexer.poll-interval:1s}") Duration pollInterval,
+                             @Value("${cart.indexer.settle-time:2s}") Duration settleTime,
+                             @Value("${cart.indexer.reconcile-interval:5m}") Duration reconcileInterval,
+                             @Value("${cart.indexer.max-retries:5}") int maxRetries,
+                             @Value("${cart.indexer.min-backoff:200ms}") Duration minBackoff,
+                             @Value("${cart.indexer.max-backoff:10s}") Duration maxBackoff) {
+        this.mongoTemplate = mongoTemplate;
+        this.elasticsearchCartRepository = elasticsearchCartRepository;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.collection = mongoTemplate.getCollectionName(Cart.class);
+        this.source = source;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.pollInterval = pollInterval;
+        this.settleTime = settleTime;
+        this.reconcileInterval = reconcileInterval;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.indexed = Counter.builder("cart.indexer.indexed").register(meterRegistry);
+        this.deleted = Counter.builder("cart.indexer.deleted").register(meterRegistry);
+        this.failures = Counter.builder("cart.indexer.failures").register(meterRegistry);
+        // Tempo entre a alteração no MongoDB e a confirmação do lote pelo Elasticsearch
+        this.lag = Timer.builder("cart.indexer.lag")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Em caso de falha persistente o pipeline recomeça a partir da última posição gravada
+        subscription = Flux.defer(() -> loadCheckpoint().flatMapMany(this::changes))
+                .bufferTimeout(batchSize, flushInterval, true)
+                .concatMap(this::indexBatch)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> log.warn("Reiniciando indexação de carrinhos no Elasticsearch: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
+        if (!SOURCE_CHANGE_STREAM.equalsIgnoreCase(source)) {
+            reconciliation = Flux.interval(reconcileInterval, reconcileInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> reconcileDeletes()
+                            .onErrorResume(error -> {
+                                failures.increment();
+                                log.warn("Erro na reconciliação de remoções do índice carts: {}", error.getMessage());
+                                return Mono.empty();
+                            }))
+                    .subscribe();
+        }
+        log.info("Indexação de carrinhos no Elasticsearch iniciada (origem: {})", source);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (reconciliation != null) {
+            reconciliation.dispose();
+        }
+    }
+
+    private Flux<IndexChange> changes(Checkpoint from) {
+        return SOURCE_CHANGE_STREAM.equalsIgnoreCase(source) ? streamChanges(from) : pollChanges(from);
+    }
+
+    private Flux<IndexChange> streamChanges(Checkpoint from) {
+        return mongoTemplate.changeStream(Document.class)
+                .watchCollection(collection)
+                .withOptions(options -> {
+                    options.fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+                    if (from.resumeToken() != null) {
+                        options.resumeAfter(BsonDocument.parse(from.resumeToken()));
+                    }
+                })
+                .listen()
+                .filter(event -> event.getRaw() != null && event.getRaw().getDocumentKey() != null)
+                .map(event -> {
+                    ChangeStreamDocument<Document> raw = event.getRaw();
+                    Document fullDocument = raw.getFullDocument();
+                    // Sem documento completo (remoção ou carrinho já removido) o carrinho sai do índice
+                    Cart cart = fullDocument == null ? null : mongoTemplate.getConverter().read(Cart.class, fullDocument);
+                    Instant changedAt = event.getTimestamp() != null ? event.getTimestamp() : Instant.now();
+                    return new IndexChange(idOf(raw.getDocumentKey().get("_id")), cart, changedAt,
+                            new Checkpoint(raw.getResumeToken().toJson(), null, null));
+                });
+    }
+
+    // Lê páginas seguidas enquanto vierem cheias; o cursor em memória só é persistido depois de cada lote indexado
+    private Flux<IndexChange> pollChanges(Checkpoint from) {
+        AtomicReference<Checkpoint> cursor = new AtomicReference<>(from);
+        return stampUnmarkedCarts().thenMany(Flux.interval(Duration.ZERO, pollInterval))
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.defer(() -> readPage(cursor))
+                        .expand(page -> page.size() >= batchSize ? Mono.defer(() -> readPage(cursor)) : Mono.empty())
+                        .flatMapIterable(page -> page));
+    }
+
+    private Mono<List<IndexChange>> readPage(AtomicReference<Checkpoint> cursor) {
+        Checkpoint from = cursor.get();
+        // Alterações mais recentes que settle-time ficam para o próximo ciclo, cobrindo escritas concorrentes
+        // cujo changedAt é anterior ao de documentos já lidos. O limite usa o relógio da aplicação, por isso
+        // settle-time também precisa cobrir a diferença entre os relógios da aplicação e do MongoDB
+        Criteria criteria = Criteria.where(CartChangeStamp.FIELD).lte(new Date(System.currentTimeMillis() - settleTime.toMillis()));
+        if (from.changedAt() != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where(CartChangeStamp.FIELD).gt(from.changedAt()),
+                    Criteria.where(CartChangeStamp.FIELD).is(from.changedAt()).and("_id").gt(from.lastId()));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, CartChangeStamp.FIELD, "_id"))
+                .limit(batchSize);
+
+        return mongoTemplate.find(query, Document.class, collection)
+                .map(document -> {
+                    Date changedAt = document.getDate(CartChangeStamp.FIELD);
+                    return new IndexChange(idOf(document.get("_id")),
+                            mongoTemplate.getConverter().read(Cart.class, document),
+                            changedAt.toInstant(),
+                            new Checkpoint(null, changedAt, document.get("_id")));
+                })
+                .collectList()
+                .doOnNext(page -> {
+                    if (!page.isEmpty()) {
+                        cursor.set(page.get(page.size() - 1).checkpoint());
+                    }
+                });
+    }
+
+    // Carrinhos gravados antes da marca changedAt não seriam vistos pelo polling: recebem a marca uma única vez
+    private Mono<Void> stampUnmarkedCarts() {
+        AggregationUpdate stamp = AggregationUpdate.update().set(CartChangeStamp.FIELD).toValue(SystemVariable.NOW);
+        return mongoTemplate.updateMulti(Query.query(Criteria.where(CartChangeStamp.FIELD).exists(false)), stamp, collection)
+                .doOnNext(result -> {
+                    if (result.getModifiedCount() > 0) {
+                        log.info("{} carrinhos sem marca de alteração preparados para indexação", result.getModifiedCount());
+                    }
+                })
+                .then();
+    }
+
+    // Percorre os ids do índice carts e remove do Elasticsearch os que não existem mais no MongoDB
+    private Mono<Void> reconcileDeletes() {
+        NativeQuery allIds = NativeQuery.builder()
+                .withQuery(query -> query.matchAll(all -> all))
+                .withSourceFilter(new FetchSourceFilterBuilder().withIncludes("cartId").build())
+                .build();
+        return elasticsearchOperations.search(allIds, CartDocument.class)
+                .map(SearchHit::getId)
+                .buffer(batchSize)
+                .concatMap(ids -> {
+                    Query existing = Query.query(Criteria.where("id").in(ids));
+                    existing.fields().include("id");
+                    return mongoTemplate.find(existing, Cart.class)
+                            .map(Cart::getId)
+                            .collect(Collectors.toSet())
+                            .map(found -> ids.stream().filter(id -> !found.contains(id)).toList());
+                })
+                .filter(missing -> !missing.isEmpty())
+                .concatMap(missing -> elasticsearchCartRepository.deleteAllById(missing)
+                        .doOnSuccess(ignored -> {
+                            deleted.increment(missing.size());
+                            log.debug("{} carrinhos removidos do Elasticsearch por não existirem mais no MongoDB", missing.size());
+                        }))
+                .then();
+    }
+
+    private Mono<Void> indexBatch(List<IndexChange> batch) {
+        // Várias alterações do mesmo carrinho no lote: apenas a última é enviada
+        Map<String, IndexChange> latest = new LinkedHashMap<>();
+        batch.forEach(change -> latest.put(change.cartId(), change));
+
+        List<CartDocument> documents = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        for (IndexChange change : latest.values()) {
+            if (change.cart() == null) {
+                deletedIds.add(change.cartId());
+                continue;
+            }
+            try {
+                documents.add(CartDocument.fromDomain(change.cart()));
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Carrinho {} ignorado na indexação: {}", change.cartId(), e.getMessage());
+            }
+        }
+
+        Mono<Void> bulk = Mono.when(
+                documents.isEmpty() ? Mono.empty() : elasticsearchCartRepository.saveAll(documents).then(),
+                deletedIds.isEmpty() ? Mono.empty() : elasticsearchCartRepository.deleteAllById(deletedIds));
+
+        return bulk
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .doBeforeRetry(signal -> {
+                            failures.increment();
+                            log.warn("Erro ao indexar lote de {} carrinhos, nova tentativa {}: {}",
+                                    latest.size(), signal.totalRetries() + 1, signal.failure().getMessage());
+                        }))
+                .then(saveCheckpoint(batch.get(batch.size() - 1).checkpoint()))
+                .doOnSuccess(ignored -> {
+                    indexed.increment(documents.size());
+                    deleted.increment(deletedIds.size());
+                    Instant now = Instant.now();
+                    batch.forEach(change -> lag.record(Duration.between(change.changedAt(), now)));
+                    log.debug("{} carrinhos indexados e {} removidos do Elasticsearch", documents.size(), deletedIds.size());
+                });
+    }
+
+    private Mono<Checkpoint> loadCheckpoint() {
+        return mongoTemplate.findById(CHECKPOINT_ID, Document.class, CHECKPOINT_COLLECTION)
+                .map(document -> new Checkpoint(document.getString("resumeToken"),
+                        document.getDate(CartChangeStamp.FIELD), document.get("lastId")))
+                .defaultIfEmpty(Checkpoint.START);
+    }
+
+    private Mono<Void> saveCheckpoint(Checkpoint checkpoint) {
+        Update update = new Update().set("savedAt", new Date());
+        if (checkpoint.resumeToken() != null) {
+            update.set("resumeToken", checkpoint.resumeToken());
+        }
+        if (checkpoint.changedAt() != null) {
+            update.set(CartChangeStamp.FIELD, checkpoint.changedAt()).set("lastId", checkpoint.lastId());
+        }
+        return mongoTemplate.upsert(Query.query(Criteria.where("_id").is(CHECKPOINT_ID)), update, CHECKPOINT_COLLECTION)
+                .then();
+    }
+
+    private static String idOf(Object id) {
+        if (id instanceof BsonValue value) {
+            return value.isObjectId() ? value.asObjectId().getValue().toHexString() : value.asString().getValue();
+        }
+        return String.valueOf(id);
+    }
+
+    private record IndexChange(String cartId, Cart cart, Instant changedAt, Checkpoint checkpoint) {
+    }
+
+    private record Checkpoint(String resumeToken, Date changedAt, Object lastId) {
+        static final Checkpoint START = new Checkpoint(null, null, null);
+    }
+}
@@ -0,0 +1,181 @@
+package com.webflux.micromerce.cart.infrastructure.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.CalendarInterval;
+import co.elastic.clients.elasticsearch._types.aggregations.StatsAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonData;
+import com.webflux.micromerce.cart.domain.model.CartSearchCriteria;
+import com.webflux.micromerce.cart.domain.model.CartSearchResult;
+import com.webflux.micromerce.cart.domain.repository.CartSearchRepository;
+import com.webflux.micromerce.cart.infrastructure.document.CartDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ReactiveElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.ReactiveIndexOperations;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Busca no índice carts (mantido pelo CartSearchIndexer). Todos os filtros vão em contexto de filtro,
+// sem cálculo de score, e a paginação usa search_after com desempate por cartId.
+@Slf4j
+@Repository
+public class ElasticsearchCartSearchRepository implements CartSearchRepository {
+
+    private static final String TIEBREAKER = "cartId";
+    private static final int TOP_PRODUCTS = 10;
+
+    private final ReactiveElasticsearchOperations operations;
+
+    public ElasticsearchCartSearchRepository(ReactiveElasticsearchOperations operations) {
+        this.operations = operations;
+    }
+
+    // Acrescenta ao mapeamento de um índice já existente os campos novos do CartDocument (como cartId)
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureMapping() {
+        ReactiveIndexOperations indexOps = operations.indexOps(CartDocument.class);
+        indexOps.exists()
+                .flatMap(exists -> exists ? indexOps.putMapping() : indexOps.createWithMapping())
+                .subscribe(
+                        updated -> log.info("Mapeamento do índice carts verificado no Elasticsearch"),
+                        error -> log.warn("Erro ao atualizar o mapeamento do índice carts: {}", error.getMessage()));
+    }
+
+    @Override
+    public Mono<CartSearchResult> search(CartSearchCriteria criteria) {
+        NativeQueryBuilder builder = NativeQuery.builder()
+                .withQuery(filters(criteria))
+                .withSort(Sort.by(Sort.Direction.DESC, criteria.getSortBy())
+                        .and(Sort.by(Sort.Direction.ASC, TIEBREAKER)))
+                .withPageable(PageRequest.of(0, criteria.getSize()))
+                .withTrackTotalHits(true);
+        if (criteria.getSearchAfter() != null) {
+            builder.withSearchAfter(criteria.getSearchAfter());
+        } else {
+            aggregations(criteria).forEach(builder::withAggregation);
+        }
+
+        return operations.searchForHits(builder.build(), CartDocument.class)
+                .flatMap(hits -> hits.getSearchHits()
+                        .collectList()
+                        .map(page -> CartSearchResult.builder()
+                                .carts(page.stream().map(hit -> hit.getContent().toDomain()).toList())
+                                .total(hits.getTotalHits())
+                                .nextSearchAfter(page.size() < criteria.getSize()
+                                        ? null
+                                        : page.get(page.size() - 1).getSortValues())
+                                .aggregations(hits.hasAggregations()
+                                        ? toAggregations(((ElasticsearchAggregations) hits.getAggregations()).aggregationsAsMap())
+                                        : null)
+                                .build()));
+    }
+
+    private Query filters(CartSearchCriteria criteria) {
+        List<Query> filters = new ArrayList<>();
+        if (criteria.getUserId() != null) {
+            filters.add(Query.of(q -> q.term(t -> t.field("userId").value(criteria.getUserId()))));
+        }
+        if (criteria.getProductId() != null) {
+            filters.add(Query.of(q -> q.nested(n -> n
+                    .path("items")
+                    .query(inner -> inner.term(t -> t.field("items.productId").value(criteria.getProductId()))))));
+        }
+        if (criteria.getStatus() != null) {
+            filters.add(Query.of(q -> q.term(t -> t.field("status").value(criteria.getStatus().name()))));
+        }
+        if (criteria.getMinTotal() != null || criteria.getMaxTotal() != null) {
+            filters.add(Query.of(q -> q.range(r -> {
+                r.field("totalAmount");
+                if (criteria.getMinTotal() != null) {
+                    r.gte(JsonData.of(criteria.getMinTotal()));
+                }
+                if (criteria.getMaxTotal() != null) {
+                    r.lte(JsonData.of(criteria.getMaxTotal()));
+                }
+                return r;
+            })));
+        }
+        if (criteria.getFrom() != null || criteria.getTo() != null) {
+            filters.add(Query.of(q -> q.range(r -> {
+                r.field(criteria.getDateField());
+                if (criteria.getFrom() != null) {
+                    r.gte(JsonData.of(criteria.getFrom().toString()));
+                }
+                if (criteria.getTo() != null) {
+                    r.lt(JsonData.of(criteria.getTo().toString()));
+                }
+                return r;
+            })));
+        }
+        return Query.of(q -> q.bool(b -> b.filter(filters)));
+    }
+
+    private Map<String, Aggregation> aggregations(CartSearchCriteria criteria) {
+        return Map.of(
+                "byStatus", Aggregation.of(a -> a.terms(t -> t.field("status"))),
+                "totalAmount", Aggregation.of(a -> a.stats(s -> s.field("totalAmount"))),
+                "byDay", Aggregation.of(a -> a.dateHistogram(d -> d
+                        .field(criteria.getDateField())
+                        .calendarInterval(CalendarInterval.Day)
+                        .format("yyyy-MM-dd")
+                        .minDocCount(1))),
+                "items", Aggregation.of(a -> a
+                        .nested(n -> n.path("items"))
+                        .aggregations("topProducts", sub -> sub.terms(t -> t.field("items.productId").size(TOP_PRODUCTS)))));
+    }
+
+    private CartSearchResult.Aggregations toAggregations(Map<String, ElasticsearchAggregation> aggregations) {
+        CartSearchResult.Aggregations result = new CartSearchResult.Aggregations();
+        Aggregate byStatus = aggregate(aggregations, "byStatus");
+        if (byStatus != null && byStatus.isSterms()) {
+            result.setByStatus(termBuckets(byStatus.sterms().buckets().array()));
+        }
+        Aggregate byDay = aggregate(aggregations, "byDay");
+        if (byDay != null && byDay.isDateHistogram()) {
+            result.setByDay(byDay.dateHistogram().buckets().array().stream()
+                    .map(bucket -> new CartSearchResult.Bucket(bucket.keyAsString(), bucket.docCount()))
+                    .toList());
+        }
+        Aggregate items = aggregate(aggregations, "items");
+        if (items != null && items.isNested()) {
+            Aggregate topProducts = items.nested().aggregations().get("topProducts");
+            if (topProducts != null && topProducts.isSterms()) {
+                result.setTopProducts(termBuckets(topProducts.sterms().buckets().array()));
+            }
+        }
+        Aggregate totalAmount = aggregate(aggregations, "totalAmount");
+        if (totalAmount != null && totalAmount.isStats()) {
+            StatsAggregate stats = totalAmount.stats();
+            // Sem documentos o Elasticsearch devolve min/max/avg nulos
+            result.setTotalAmount(stats.count() == 0
+                    ? new CartSearchResult.AmountStats(0, 0, 0, 0, 0)
+                    : new CartSearchResult.AmountStats(stats.count(), stats.min(), stats.max(), stats.avg(), stats.sum()));
+        }
+        return result;
+    }
+
+    private Aggregate aggregate(Map<String, ElasticsearchAggregation> aggregations, String name) {
+        ElasticsearchAggregation aggregation = aggregations.get(name);
+        return aggregation == null ? null : aggregation.aggregation().getAggregate();
+    }
+
+    private List<CartSearchResult.Bucket> termBuckets(List<StringTermsBucket> buckets) {
+        return buckets.stream()
+                .map(bucket -> new CartSearchResult.Bucket(bucket.key().stringValue(), bucket.docCount()))
+                .toList();
+    }
+}
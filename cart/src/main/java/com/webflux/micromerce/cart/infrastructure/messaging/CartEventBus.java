@@ -0,0 +1,74 @@
+package com.webflux.micromerce.cart.infrastructure.messaging;
+
+import com.webflux.micromerce.cart.application.dto.response.CartResponse;
+import com.webflux.micromerce.cart.domain.event.CartCreatedEvent;
+import com.webflux.micromerce.cart.domain.event.CartEvent;
+import com.webflux.micromerce.cart.domain.event.CartStateChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+
+import java.nio.charset.StandardCharsets;
+
+// Ponto único de publicação dos eventos de carrinho no Kafka. Todos os eventos usam o mesmo KafkaSender
+// e têm o cartId como chave, o que mantém a ordem por carrinho.
+@Slf4j
+@Component
+public class CartEventBus {
+
+    private static final String EVENT_ID_HEADER = "eventId";
+    private static final String EVENT_TYPE_HEADER = "eventType";
+    private static final String CART_VERSION_HEADER = "cartVersion";
+
+    private final KafkaSender<String, Object> kafkaSender;
+    private final String cartEventsTopic;
+
+    public CartEventBus(KafkaSender<String, Object> kafkaSender,
+                        @Value("${spring.kafka.topics.cart-events}") String cartEventsTopic) {
+        this.kafkaSender = kafkaSender;
+        this.cartEventsTopic = cartEventsTopic;
+    }
+
+    public Mono<Void> publish(CartEvent event) {
+        return send(Flux.just(event))
+                .next()
+                .flatMap(result -> result.exception() == null ? Mono.<Void>empty() : Mono.<Void>error(result.exception()));
+    }
+
+    // Envio em lote: o reactor-kafka consome o Flux conforme a demanda (maxInFlight). Cada resultado traz
+    // o evento de origem e, em caso de falha, a exceção, sem interromper o envio dos demais
+    public Flux<SenderResult<CartEvent>> send(Flux<? extends CartEvent> events) {
+        return kafkaSender.send(events.map(this::toRecord))
+                .doOnNext(result -> {
+                    CartEvent event = result.correlationMetadata();
+                    if (result.exception() != null) {
+                        log.error("Falha ao publicar evento {} ({}) do carrinho {}: {}", event.getEventId(),
+                                event.getEventType(), event.getCartId(), result.exception().getMessage());
+                    } else {
+                        log.debug("Evento {} ({}) do carrinho {} publicado no offset {}", event.getEventId(),
+                                event.getEventType(), event.getCartId(), result.recordMetadata().offset());
+                    }
+                });
+    }
+
+    private SenderRecord<String, Object, CartEvent> toRecord(CartEvent event) {
+        // O payload de cada tipo de evento é o mesmo lido hoje pelos consumidores do tópico
+        Object payload = switch (event) {
+            case CartCreatedEvent created -> created;
+            case CartStateChangedEvent changed -> CartResponse.fromDomain(changed.getCart());
+        };
+        ProducerRecord<String, Object> record = new ProducerRecord<>(cartEventsTopic, event.getCartId(), payload);
+        record.headers().add(EVENT_ID_HEADER, event.getEventId().getBytes(StandardCharsets.UTF_8));
+        record.headers().add(EVENT_TYPE_HEADER, event.getEventType().getBytes(StandardCharsets.UTF_8));
+        if (event instanceof CartStateChangedEvent changed && changed.getCartVersion() != null) {
+            record.headers().add(CART_VERSION_HEADER, changed.getCartVersion().toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return SenderRecord.create(record, event);
+    }
+}
@@ -0,0 +1,232 @@
+package com.webflux.micromerce.cart.infrastructure.messaging;
+
+import com.webflux.micromerce.cart.domain.event.CartCreatedEvent;
+import com.webflux.micromerce.cart.domain.event.CartEvent;
+import com.webflux.micromerce.cart.domain.event.CartStateChangedEvent;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.infrastructure.persistence.CartOutbox;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisLockService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Publica no Kafka os eventos gravados no outbox dos carrinhos. A cada ciclo lê um lote dos carrinhos com
+// eventos mais antigos, envia em lote pelo CartEventBus e remove do outbox apenas os eventos confirmados.
+// A entrega é pelo menos uma vez: o eventId vai no cabeçalho para o consumidor descartar duplicatas.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cart.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class CartOutboxRelay {
+
+    private static final String LOCK_NAME = "cart-outbox-relay";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CartEventBus eventBus;
+    private final RedisLockService lockService;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final Duration lockTtl;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter published;
+    private final Counter failures;
+    private Disposable poller;
+
+    public CartOutboxRelay(ReactiveMongoTemplate mongoTemplate,
+                           CartEventBus eventBus,
+                           RedisLockService lockService,
+                           MeterRegistry meterRegistry,
+                           @Value("${cart.outbox.poll-interval:500ms}") Duration pollInterval,
+                           @Value("${cart.outbox.batch-size:200}") int batchSize,
+                           @Value("${cart.outbox.lock-ttl:30s}") Duration lockTtl) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventBus = eventBus;
+        this.lockService = lockService;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.lockTtl = lockTtl;
+        this.published = Counter.builder("cart.outbox.published").register(meterRegistry);
+        this.failures = Counter.builder("cart.outbox.failures").register(meterRegistry);
+        // Idade, em milissegundos, do evento mais antigo ainda não publicado
+        Gauge.builder("cart.outbox.lag", lagMillis, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // concatMap: um ciclo por vez; ticks que chegam durante um ciclo longo são descartados
+        poller = Flux.interval(pollInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> relay()
+                        .onErrorResume(error -> {
+                            log.error("Erro ao publicar eventos do outbox: {}", error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) {
+            poller.dispose();
+        }
+    }
+
+    // Apenas o nó que detém o lock publica, evitando envios duplicados entre instâncias
+    public Mono<Long> relay() {
+        return lockService.tryAcquire(LOCK_NAME, lockTtl)
+                .flatMap(token -> drain()
+                        .flatMap(count -> lockService.release(LOCK_NAME, token).thenReturn(count))
+                        .onErrorResume(error -> lockService.release(LOCK_NAME, token).then(Mono.error(error))));
+    }
+
+    // Processa lotes seguidos enquanto vierem cheios, sem ultrapassar a validade do lock. Um lote sem nenhum
+    // evento publicado (p.ex. Kafka fora do ar) encerra o ciclo: o próximo tick tenta de novo
+    private Mono<Long> drain() {
+        return relayBatch()
+                .expand(batch -> batch.carts() >= batchSize && batch.published() > 0 ? relayBatch() : Mono.empty())
+                .take(lockTtl)
+                .reduce(0L, (total, batch) -> total + batch.published());
+    }
+
+    private Mono<BatchResult> relayBatch() {
+        Query query = Query.query(Criteria.where(CartOutbox.FIELD + "." + CartOutbox.CREATED_AT).lte(new Date()))
+                .with(Sort.by(Sort.Direction.ASC, CartOutbox.FIELD + "." + CartOutbox.CREATED_AT))
+                .limit(batchSize);
+
+        return mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Cart.class))
+                .collectList()
+                .flatMap(documents -> {
+                    updateLag(documents);
+                    if (documents.isEmpty()) {
+                        return Mono.just(new BatchResult(0, 0L));
+                    }
+                    return send(documents).map(published -> new BatchResult(documents.size(), published));
+                });
+    }
+
+    private Mono<Long> send(List<Document> documents) {
+        List<CartEvent> events = documents.stream()
+                .flatMap(document -> {
+                    Cart cart = mongoTemplate.getConverter().read(Cart.class, document);
+                    return document.getList(CartOutbox.FIELD, Document.class).stream()
+                            .map(entry -> toEvent(cart, entry));
+                })
+                .toList();
+
+        return eventBus.send(Flux.fromIterable(events))
+                .filter(result -> result.exception() != null)
+                .doOnNext(result -> failures.increment())
+                .map(result -> result.correlationMetadata().getEventId())
+                .collect(Collectors.toSet())
+                .flatMap(failed -> {
+                    List<CartEvent> removable = publishedInOrder(events, failed);
+                    return removePublished(removable).thenReturn((long) removable.size());
+                });
+    }
+
+    // Por carrinho, só saem do outbox os eventos anteriores à primeira falha: os seguintes, mesmo confirmados,
+    // ficam para ser reenviados depois do evento que falhou, preservando a ordem do carrinho
+    private List<CartEvent> publishedInOrder(List<CartEvent> events, Set<String> failed) {
+        Set<String> blockedCarts = new HashSet<>();
+        List<CartEvent> removable = new ArrayList<>();
+        for (CartEvent event : events) {
+            if (blockedCarts.contains(event.getCartId())) {
+                continue;
+            }
+            if (failed.contains(event.getEventId())) {
+                blockedCarts.add(event.getCartId());
+                continue;
+            }
+            removable.add(event);
+        }
+        return removable;
+    }
+
+    // O payload é o estado atual do carrinho, que pode já incluir alterações posteriores ao evento. CART_CREATED
+    // mantém o formato de CartCreatedEvent, o mesmo publicado antes diretamente pelo CreateCartUseCase
+    private CartEvent toEvent(Cart cart, Document entry) {
+        LocalDateTime timestamp = LocalDateTime.ofInstant(entry.getDate(CartOutbox.CREATED_AT).toInstant(), ZoneId.systemDefault());
+        if (CartEvent.EventType.CART_CREATED.equals(entry.getString(CartOutbox.EVENT_TYPE))) {
+            return CartCreatedEvent.builder()
+                    .eventId(entry.getString(CartOutbox.EVENT_ID))
+                    .cartId(cart.getId())
+                    .userId(cart.getUserId())
+                    .eventType(CartEvent.EventType.CART_CREATED)
+                    .timestamp(timestamp)
+                    .cart(cart)
+                    .build();
+        }
+        return CartStateChangedEvent.builder()
+                .eventId(entry.getString(CartOutbox.EVENT_ID))
+                .cartId(cart.getId())
+                .eventType(entry.getString(CartOutbox.EVENT_TYPE))
+                .timestamp(timestamp)
+                .cartVersion(cart.getVersion())
+                .cart(cart)
+                .build();
+    }
+
+    // Remove do outbox só os eventos confirmados; eventos gravados depois da leitura permanecem
+    private Mono<Void> removePublished(List<CartEvent> events) {
+        if (events.isEmpty()) {
+            return Mono.empty();
+        }
+        Map<String, List<String>> eventIdsByCart = events.stream()
+                .collect(Collectors.groupingBy(CartEvent::getCartId,
+                        Collectors.mapping(CartEvent::getEventId, Collectors.toList())));
+
+        return Flux.fromIterable(eventIdsByCart.entrySet())
+                .flatMap(entry -> mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("id").is(entry.getKey())),
+                        new Update().pull(CartOutbox.FIELD,
+                                new Document(CartOutbox.EVENT_ID, new Document("$in", entry.getValue()))),
+                        Cart.class))
+                .doOnComplete(() -> {
+                    published.increment(events.size());
+                    log.debug("{} eventos do outbox publicados", events.size());
+                })
+                .then();
+    }
+
+    private void updateLag(List<Document> documents) {
+        long oldest = documents.stream()
+                .flatMap(document -> document.getList(CartOutbox.FIELD, Document.class).stream())
+                .map(event -> event.getDate(CartOutbox.CREATED_AT))
+                .mapToLong(Date::getTime)
+                .min()
+                .orElse(System.currentTimeMillis());
+        lagMillis.set(Math.max(0, System.currentTimeMillis() - oldest));
+    }
+
+    private record BatchResult(int carts, long published) {
+    }
+}
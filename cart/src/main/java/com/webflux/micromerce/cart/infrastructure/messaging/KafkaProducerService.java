@@ -1,18 +0,0 @@
-package com.webflux.micromerce.cart.infrastructure.messaging;
-
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.stereotype.Service;
-
-@Service
-public class KafkaProducerService {
-
-    private final KafkaTemplate<String, String> kafkaTemplate;
-
-    public KafkaProducerService(KafkaTemplate<String, String> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
-    }
-
-    public void sendMessage(String message) {
-        kafkaTemplate.send("cart-topic", message);
-    }
-}
\ No newline at end of file
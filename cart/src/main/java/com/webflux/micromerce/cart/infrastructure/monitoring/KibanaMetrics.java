@@ -4,74 +4,76 @@ import com.webflux.micromerce.cart.infrastructure.cache.RedisMetricsService;
 import com.webflux.micromerce.cart.infrastructure.config.MongoMetricsService;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+// Métricas das operações de carrinho, expostas pelo Micrometer (/actuator/prometheus). Cada operação tem um
+// timer com histograma e percentis p50/p99/p999, criado uma única vez e reaproveitado nas chamadas seguintes.
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class KibanaMetrics {
+    private static final String SERVICE_NAME = "cart-service";
+    private static final Duration MAX_EXPECTED_LATENCY = Duration.ofSeconds(10);
+
     private final MeterRegistry meterRegistry;
-    private final WebClient webClient;
     private final RedisMetricsService redisMetricsService;
     private final MongoMetricsService mongoMetricsService;
     private final KibanaMetricsSender kibanaMetricsSender;
-    private static final String SERVICE_NAME = "cart-service";
-    
     private final KibanaMetricsData metricsData = new KibanaMetricsData();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
 
-    public <T> Mono<T> recordOperation(String operationName, Supplier<Mono<T>> operation) {
-        Timer timer = Timer.builder("cart.operation")
-            .tag("operation", operationName)
-            .tag("service", SERVICE_NAME)
-            .register(meterRegistry);
+    public KibanaMetrics(MeterRegistry meterRegistry,
+                         RedisMetricsService redisMetricsService,
+                         MongoMetricsService mongoMetricsService,
+                         KibanaMetricsSender kibanaMetricsSender) {
+        this.meterRegistry = meterRegistry;
+        this.redisMetricsService = redisMetricsService;
+        this.mongoMetricsService = mongoMetricsService;
+        this.kibanaMetricsSender = kibanaMetricsSender;
+        metricsData.bindTo(meterRegistry);
+    }
 
-        return Mono.just(System.nanoTime())
-            .flatMap(startTime -> 
-                timer.record(operation)
+    public <T> Mono<T> recordOperation(String operationName, Supplier<Mono<T>> operation) {
+        Timer timer = timers.computeIfAbsent(operationName, this::operationTimer);
+        return Mono.defer(() -> {
+            long startTime = System.nanoTime();
+            return operation.get()
                     .doOnSuccess(result -> {
-                        long duration = (System.nanoTime() - startTime) / 1_000_000; // Convert to milliseconds
-                        metricsData.recordOperation(duration);
-                        
+                        timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                        metricsData.recordOperation();
                         switch (operationName) {
-                            case "create_cart":
-                                metricsData.recordCartCreated();
-                                break;
-                            case "checkout_cart":
+                            case "create_cart" -> metricsData.recordCartCreated();
+                            case "checkout_cart" -> {
                                 metricsData.recordCartCompleted();
-                                metricsData.recordCheckout(duration);
-                                break;
-                            case "abandon_cart":
-                                metricsData.recordCartAbandoned();
-                                break;
-                            case "add_item":
-                                metricsData.recordItemAdded(duration);
-                                break;
+                                metricsData.recordCheckout();
+                            }
+                            case "abandon_cart" -> metricsData.recordCartAbandoned();
+                            case "delete_cart" -> metricsData.recordCartDeleted();
+                            case "update_cart" -> metricsData.recordCartUpdated();
+                            case "add_item" -> metricsData.recordItemAdded();
+                            case "update_item_quantity" -> metricsData.recordItemQuantityUpdated();
+                            default -> {
+                            }
                         }
                     })
-                    .doOnError(error -> metricsData.recordError())
-            );
+                    .doOnError(error -> {
+                        timer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                        metricsData.recordError();
+                    });
+        });
     }
 
     public KibanaMetricsData getCartMetrics() {
         return metricsData;
     }
 
-    public Mono<Void> sendMetricsToKibana(KibanaMetricsData metrics) {
-        return webClient.post()
-            .uri("/api/metrics")
-            .bodyValue(metrics)
-            .retrieve()
-            .bodyToMono(Void.class)
-            .doOnSuccess(response -> log.debug("Métricas enviadas com sucesso para Kibana"))
-            .doOnError(error -> log.error("Erro ao enviar métricas para o Kibana: {}", error.getMessage()));
-    }
-
     public Mono<Void> monitorMetrics() {
         return Mono.when(
                 redisMetricsService.monitorRedisMetrics(),
@@ -82,4 +84,14 @@ public class KibanaMetrics {
     public Mono<Void> sendCustomMetric(String service, String metric) {
         return kibanaMetricsSender.sendMetricsToKibana(service, metric);
     }
+
+    private Timer operationTimer(String operationName) {
+        return Timer.builder("cart.operation")
+                .tag("operation", operationName)
+                .tag("service", SERVICE_NAME)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED_LATENCY)
+                .register(meterRegistry);
+    }
 }
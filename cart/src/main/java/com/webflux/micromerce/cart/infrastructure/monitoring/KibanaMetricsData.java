@@ -1,97 +1,146 @@
 package com.webflux.micromerce.cart.infrastructure.monitoring;
 
-import lombok.Data;
-import lombok.NoArgsConstructor;
-import java.time.Instant;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 
-@Data
-@NoArgsConstructor
-public class KibanaMetricsData {
-    @JsonProperty("@timestamp")
-    private Instant timestamp = Instant.now();
-    
-    private long totalCarts = 0;
-    private long activeCarts = 0;
-    private long completedCarts = 0;
-    private long abandonedCarts = 0;
-    private long deletedCarts = 0;
-    private long updatedCarts = 0;
-    private long totalItems = 0;
-    private long updatedItems = 0;
-    private long averageItemsPerCart = 0;
-    private long operationCount = 0;
-    private long averageOperationTime = 0;
-    private long errorCount = 0;
-    
-    // Métricas adicionais para o relatório
-    private long cartsCreated = 0;
-    private long cartsCheckedOut = 0;
-    private double avgCheckoutTime = 0;
-    private double avgItemAddTime = 0;
-    private long checkoutCount = 0;
-    private long itemAddCount = 0;
-    private long itemUpdateCount = 0;
-    private double avgItemUpdateTime = 0;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+// Contadores do serviço de carrinho, incrementados por qualquer thread do reactor. LongAdder distribui as
+// escritas em células por thread, sem lock nem perda de incrementos; os valores derivados (carrinhos ativos,
+// média de itens) são calculados na leitura. As latências ficam nos timers do KibanaMetrics.
+public class KibanaMetricsData implements MeterBinder {
+
+    private final LongAdder cartsCreated = new LongAdder();
+    private final LongAdder cartsCompleted = new LongAdder();
+    private final LongAdder cartsAbandoned = new LongAdder();
+    private final LongAdder cartsDeleted = new LongAdder();
+    private final LongAdder cartsUpdated = new LongAdder();
+    private final LongAdder itemsAdded = new LongAdder();
+    private final LongAdder itemsUpdated = new LongAdder();
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder errors = new LongAdder();
 
     public void recordCartCreated() {
-        this.totalCarts++;
-        this.activeCarts++;
-        this.cartsCreated++;
+        cartsCreated.increment();
     }
 
     public void recordCartCompleted() {
-        this.completedCarts++;
-        this.activeCarts--;
-        this.cartsCheckedOut++;
+        cartsCompleted.increment();
     }
 
     public void recordCartAbandoned() {
-        this.abandonedCarts++;
-        this.activeCarts--;
+        cartsAbandoned.increment();
     }
 
     public void recordCartDeleted() {
-        this.deletedCarts++;
-        this.totalCarts--;
-        if (this.activeCarts > 0) {
-            this.activeCarts--;
-        }
+        cartsDeleted.increment();
     }
 
     public void recordCartUpdated() {
-        this.updatedCarts++;
-        this.operationCount++;
+        cartsUpdated.increment();
     }
 
     public void recordItemQuantityUpdated() {
-        this.updatedItems++;
-        this.itemUpdateCount++;
-        this.operationCount++;
+        itemsUpdated.increment();
     }
 
-    public void recordItemAdded(long operationTime) {
-        this.totalItems++;
-        this.itemAddCount++;
-        if (activeCarts > 0) {
-            this.averageItemsPerCart = this.totalItems / this.activeCarts;
-        }
-        this.avgItemAddTime = ((this.avgItemAddTime * (this.itemAddCount - 1)) + operationTime) / this.itemAddCount;
+    public void recordItemAdded() {
+        itemsAdded.increment();
     }
 
-    public void recordCheckout(long operationTime) {
-        this.checkoutCount++;
-        this.avgCheckoutTime = ((this.avgCheckoutTime * (this.checkoutCount - 1)) + operationTime) / this.checkoutCount;
+    public void recordCheckout() {
+        checkouts.increment();
     }
 
-    public void recordOperation(long operationTime) {
-        this.operationCount++;
-        this.averageOperationTime = 
-            ((this.averageOperationTime * (this.operationCount - 1)) + operationTime) 
-            / this.operationCount;
+    public void recordOperation() {
+        operations.increment();
     }
 
     public void recordError() {
-        this.errorCount++;
+        errors.increment();
+    }
+
+    @JsonProperty("@timestamp")
+    public Instant getTimestamp() {
+        return Instant.now();
+    }
+
+    public long getCartsCreated() {
+        return cartsCreated.sum();
+    }
+
+    public long getCompletedCarts() {
+        return cartsCompleted.sum();
+    }
+
+    public long getAbandonedCarts() {
+        return cartsAbandoned.sum();
+    }
+
+    public long getDeletedCarts() {
+        return cartsDeleted.sum();
+    }
+
+    public long getUpdatedCarts() {
+        return cartsUpdated.sum();
+    }
+
+    public long getTotalItems() {
+        return itemsAdded.sum();
+    }
+
+    public long getUpdatedItems() {
+        return itemsUpdated.sum();
+    }
+
+    public long getCheckoutCount() {
+        return checkouts.sum();
+    }
+
+    public long getOperationCount() {
+        return operations.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    // Contadores lidos em momentos ligeiramente diferentes; o valor nunca fica negativo
+    public long getActiveCarts() {
+        return Math.max(0, getCartsCreated() - getCompletedCarts() - getAbandonedCarts() - getDeletedCarts());
+    }
+
+    public double getAverageItemsPerCart() {
+        long active = getActiveCarts();
+        return active == 0 ? 0 : (double) getTotalItems() / active;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "carts.created", KibanaMetricsData::getCartsCreated);
+        counter(registry, "carts.completed", KibanaMetricsData::getCompletedCarts);
+        counter(registry, "carts.abandoned", KibanaMetricsData::getAbandonedCarts);
+        counter(registry, "carts.deleted", KibanaMetricsData::getDeletedCarts);
+        counter(registry, "carts.updated", KibanaMetricsData::getUpdatedCarts);
+        counter(registry, "items.added", KibanaMetricsData::getTotalItems);
+        counter(registry, "items.updated", KibanaMetricsData::getUpdatedItems);
+        counter(registry, "checkouts", KibanaMetricsData::getCheckoutCount);
+        counter(registry, "operations", KibanaMetricsData::getOperationCount);
+        counter(registry, "errors", KibanaMetricsData::getErrorCount);
+        Gauge.builder("cart.metrics.carts.active", this, KibanaMetricsData::getActiveCarts)
+                .register(registry);
+        Gauge.builder("cart.metrics.items.per-cart", this, KibanaMetricsData::getAverageItemsPerCart)
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, ToDoubleFunction<KibanaMetricsData> value) {
+        FunctionCounter.builder("cart.metrics." + name, this, value)
+                .register(registry);
     }
 }
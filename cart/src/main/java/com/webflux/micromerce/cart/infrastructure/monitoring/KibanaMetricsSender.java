@@ -1,30 +1,191 @@
 package com.webflux.micromerce.cart.infrastructure.monitoring;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Envia métricas ao Elasticsearch em lotes. sendMetricsToKibana só enfileira o documento em um buffer
+// circular limitado (cheio, descarta o mais antigo); um ciclo periódico esvazia o buffer via _bulk usando
+// um pool de conexões próprio. Mesma implementação no cart e no catalog, configurada por metrics.shipper.*.
+@Slf4j
 @Service
 public class KibanaMetricsSender {
 
-    private final String kibanaUrl = "http://localhost:9200/metrics/_doc";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String BULK_ACTION = "{\"index\":{}}\n";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
 
+    private final ObjectMapper objectMapper;
+    private final ConnectionProvider connectionProvider;
     private final WebClient webClient;
+    private final String serviceName;
+    private final String index;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final ArrayBlockingQueue<Map<String, Object>> buffer;
+    private final Counter shipped;
+    private final Counter dropped;
+    private final Counter failed;
+    private Disposable flusher;
+
+    public KibanaMetricsSender(WebClient.Builder webClientBuilder,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${spring.application.name:unknown}") String serviceName,
+                               @Value("${metrics.shipper.url:http://localhost:9200}") String url,
+                               @Value("${metrics.shipper.index:metrics}") String index,
+                               @Value("${metrics.shipper.capacity:10000}") int capacity,
+                               @Value("${metrics.shipper.batch-size:500}") int batchSize,
+                               @Value("${metrics.shipper.flush-interval:5s}") Duration flushInterval,
+                               @Value("${metrics.shipper.max-connections:4}") int maxConnections) {
+        this.objectMapper = objectMapper;
+        this.serviceName = serviceName;
+        this.index = index;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.connectionProvider = ConnectionProvider.builder("metrics-shipper")
+                .maxConnections(maxConnections)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+        // clone(): o builder pode ser um bean compartilhado com outros clientes
+        this.webClient = webClientBuilder.clone()
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                        .responseTimeout(REQUEST_TIMEOUT)))
+                .build();
+        this.shipped = Counter.builder("metrics.shipper.shipped").register(meterRegistry);
+        this.dropped = Counter.builder("metrics.shipper.dropped").register(meterRegistry);
+        this.failed = Counter.builder("metrics.shipper.failed").register(meterRegistry);
+        Gauge.builder("metrics.shipper.queue.depth", buffer, ArrayBlockingQueue::size)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // concatMap: um envio por vez; ticks que chegam durante um envio lento são descartados
+        flusher = Flux.interval(flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush()
+                        .onErrorResume(error -> {
+                            log.warn("Erro ao enviar métricas ao Elasticsearch: {}", error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
 
-    public KibanaMetricsSender(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.baseUrl(kibanaUrl).build();
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+        flush().onErrorResume(error -> Mono.empty()).block(SHUTDOWN_TIMEOUT);
+        connectionProvider.dispose();
     }
 
     public Mono<Void> sendMetricsToKibana(String source, String metrics) {
-        // Envia as métricas para o Kibana
-        String payload = String.format("{\"source\": \"%s\", \"metrics\": \"%s\"}", source, metrics);
-        return webClient.post()
-                .body(Mono.just(payload), String.class)
-                .retrieve()
-                .bodyToMono(Void.class)
-                .onErrorResume(e -> {
-                    e.printStackTrace();
-                    return Mono.empty();
-                });
-    }
-}
\ No newline at end of file
+        return Mono.fromRunnable(() -> enqueue(document(source, metrics)));
+    }
+
+    // Envia lotes seguidos enquanto vierem cheios
+    public Mono<Void> flush() {
+        return flushBatch()
+                .expand(count -> count >= batchSize ? flushBatch() : Mono.empty())
+                .then();
+    }
+
+    public int queueDepth() {
+        return buffer.size();
+    }
+
+    private void enqueue(Map<String, Object> document) {
+        while (!buffer.offer(document)) {
+            if (buffer.poll() != null) {
+                dropped.increment();
+            }
+        }
+    }
+
+    private Mono<Integer> flushBatch() {
+        return Mono.defer(() -> {
+            List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+            buffer.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                return Mono.just(0);
+            }
+            // Métricas são best-effort: um lote que falha é contabilizado e descartado, sem reenvio
+            return webClient.post()
+                    .uri("/{index}/_bulk", index)
+                    .contentType(NDJSON)
+                    .bodyValue(bulkBody(batch))
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .doOnNext(response -> recordResult(response, batch.size()))
+                    .doOnError(error -> failed.increment(batch.size()))
+                    .thenReturn(batch.size());
+        });
+    }
+
+    private String bulkBody(List<Map<String, Object>> batch) {
+        StringBuilder body = new StringBuilder();
+        for (Map<String, Object> document : batch) {
+            try {
+                body.append(BULK_ACTION).append(objectMapper.writeValueAsString(document)).append('\n');
+            } catch (JsonProcessingException e) {
+                failed.increment();
+            }
+        }
+        return body.toString();
+    }
+
+    private void recordResult(JsonNode response, int size) {
+        if (!response.path("errors").asBoolean(false)) {
+            shipped.increment(size);
+            return;
+        }
+        int rejected = 0;
+        for (JsonNode item : response.path("items")) {
+            if (item.path("index").path("status").asInt(500) >= 300) {
+                rejected++;
+            }
+        }
+        shipped.increment(size - rejected);
+        failed.increment(rejected);
+        log.warn("{} de {} métricas rejeitadas pelo Elasticsearch", rejected, size);
+    }
+
+    private Map<String, Object> document(String source, String metrics) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("@timestamp", Instant.now().toString());
+        document.put("service", serviceName);
+        document.put("source", source);
+        document.put("metrics", metrics);
+        return document;
+    }
+}
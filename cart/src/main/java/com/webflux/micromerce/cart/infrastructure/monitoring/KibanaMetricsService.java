@@ -1,10 +1,18 @@
 package com.webflux.micromerce.cart.infrastructure.monitoring;
 
-import lombok.Getter;
 import org.springframework.stereotype.Service;
 
+// Acesso aos contadores do serviço a partir de outros componentes; a instância é a mesma do KibanaMetrics
 @Service
 public class KibanaMetricsService {
-    @Getter
-    private final KibanaMetricsData metricsData = new KibanaMetricsData();
+
+    private final KibanaMetrics kibanaMetrics;
+
+    public KibanaMetricsService(KibanaMetrics kibanaMetrics) {
+        this.kibanaMetrics = kibanaMetrics;
+    }
+
+    public KibanaMetricsData getMetricsData() {
+        return kibanaMetrics.getCartMetrics();
+    }
 }
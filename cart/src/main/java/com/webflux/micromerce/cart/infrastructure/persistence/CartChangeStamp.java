@@ -0,0 +1,14 @@
+package com.webflux.micromerce.cart.infrastructure.persistence;
+
+// Marca de alteração atribuída pelo relógio do MongoDB ($$NOW / $currentDate) em toda escrita no carrinho.
+// Diferente de updatedAt, que vem do relógio da aplicação e pode chegar atrasado ao banco (flush da escrita
+// adiada, replay do stream), changedAt reflete o momento em que a escrita foi aplicada. É o cursor do
+// CartSearchIndexer no modo polling.
+public final class CartChangeStamp {
+
+    public static final String FIELD = "changedAt";
+    public static final String SERVER_NOW = "$$NOW";
+
+    private CartChangeStamp() {
+    }
+}
@@ -0,0 +1,175 @@
+package com.webflux.micromerce.cart.infrastructure.persistence;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+// Cria os índices da coleção carts e confere com explain() que as consultas do MongoDBCartRepository
+// usam índice. Com cart.indexes.plan-check=fail a aplicação não sobe se alguma consulta fizer COLLSCAN.
+@Slf4j
+@Component
+public class CartIndexInitializer implements ApplicationRunner {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+    private static final String COLLSCAN = "COLLSCAN";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Duration completedTtl;
+    private final Duration abandonedTtl;
+    private final String planCheck;
+
+    public CartIndexInitializer(ReactiveMongoTemplate mongoTemplate,
+                                @Value("${cart.indexes.completed-ttl:}") Duration completedTtl,
+                                @Value("${cart.indexes.abandoned-ttl:}") Duration abandonedTtl,
+                                @Value("${cart.indexes.plan-check:warn}") String planCheck) {
+        this.mongoTemplate = mongoTemplate;
+        this.completedTtl = completedTtl;
+        this.abandonedTtl = abandonedTtl;
+        this.planCheck = planCheck;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ensureIndexes().block(STARTUP_TIMEOUT);
+        if (!"off".equalsIgnoreCase(planCheck)) {
+            verifyQueryPlans().block(STARTUP_TIMEOUT);
+        }
+    }
+
+    private Mono<Void> ensureIndexes() {
+        // userId, userId+status e userId+status+createdAt são atendidos pelo prefixo do mesmo índice
+        List<Index> indexes = new ArrayList<>(List.of(
+                new Index().on("userId", Sort.Direction.ASC).on("status", Sort.Direction.ASC).on("createdAt", Sort.Direction.ASC)
+                        .named("userId_status_createdAt"),
+                // No máximo um carrinho ACTIVE por usuário; também atende a busca do carrinho ativo no fallback do ponteiro
+                new Index().on("userId", Sort.Direction.ASC)
+                        .unique()
+                        .partial(PartialIndexFilter.of(Criteria.where("status").is(CartStatus.ACTIVE.name())))
+                        .named("active_cart_per_user"),
+                // Paginação por keyset do resumo de carrinhos do usuário
+                new Index().on("userId", Sort.Direction.ASC).on("createdAt", Sort.Direction.DESC).on("_id", Sort.Direction.DESC)
+                        .named("userId_createdAt_id"),
+                new Index().on("status", Sort.Direction.ASC).on("updatedAt", Sort.Direction.ASC)
+                        .named("status_updatedAt"),
+                // Analytics e exportação por período de criação
+                new Index().on("createdAt", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                        .named("createdAt_id"),
+                // Leitura por keyset do CartSearchIndexer quando não há change stream
+                new Index().on(CartChangeStamp.FIELD, Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                        .named("changedAt_id"),
+                // Multikey e esparso: só os carrinhos com eventos pendentes no outbox entram no índice
+                new Index().on(CartOutbox.FIELD + "." + CartOutbox.CREATED_AT, Sort.Direction.ASC)
+                        .sparse()
+                        .named("outbox_createdAt")));
+
+        // TTL parciais apagam dados: só são criados quando a retenção é configurada explicitamente
+        if (completedTtl != null) {
+            indexes.add(new Index().on("completedAt", Sort.Direction.ASC)
+                    .expire(completedTtl)
+                    .partial(PartialIndexFilter.of(Criteria.where("status").is(CartStatus.COMPLETED.name())))
+                    .named("completed_ttl"));
+        } else {
+            log.info("Retenção de carrinhos COMPLETED desativada (cart.indexes.completed-ttl não configurado)");
+        }
+        if (abandonedTtl != null) {
+            indexes.add(new Index().on("updatedAt", Sort.Direction.ASC)
+                    .expire(abandonedTtl)
+                    .partial(PartialIndexFilter.of(Criteria.where("status").is(CartStatus.ABANDONED.name())))
+                    .named("abandoned_ttl"));
+        } else {
+            log.info("Retenção de carrinhos ABANDONED desativada (cart.indexes.abandoned-ttl não configurado)");
+        }
+
+        return Flux.fromIterable(indexes)
+                .concatMap(index -> mongoTemplate.indexOps(Cart.class).ensureIndex(index)
+                        .doOnNext(name -> log.info("Índice {} garantido na coleção carts", name))
+                        .onErrorResume(error -> {
+                            log.error("Erro ao criar índice {} na coleção carts: {}", index.getIndexOptions().get("name"), error.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private Mono<Void> verifyQueryPlans() {
+        Date now = new Date();
+        String active = CartStatus.ACTIVE.name();
+        // Mesmos filtros (e ordenação) usados pelo MongoDBCartRepository
+        Map<String, QueryShape> queries = Map.of(
+                "findByUserId", new QueryShape(new Document("userId", "explain"), null),
+                "findSummariesByUserId", new QueryShape(new Document("userId", "explain"),
+                        new Document("createdAt", -1).append("_id", -1)),
+                "findByUserIdAndStatus", new QueryShape(new Document("userId", "explain").append("status", active), null),
+                "findByUserIdAndStatusBetweenDates", new QueryShape(new Document("userId", "explain").append("status", active)
+                        .append("createdAt", new Document("$gte", now).append("$lte", now)), null),
+                "findByStatus", new QueryShape(new Document("status", active), null),
+                "findAbandonedCarts", new QueryShape(new Document("status", active)
+                        .append("updatedAt", new Document("$lt", now)), null),
+                "CartAnalytics", new QueryShape(new Document("createdAt", new Document("$gte", now).append("$lt", now)),
+                        new Document("createdAt", 1).append("_id", 1)),
+                "CartSearchIndexer", new QueryShape(new Document(CartChangeStamp.FIELD, new Document("$lte", now)),
+                        new Document(CartChangeStamp.FIELD, 1).append("_id", 1)),
+                "CartOutboxRelay", new QueryShape(new Document(CartOutbox.FIELD + "." + CartOutbox.CREATED_AT, new Document("$lte", now)),
+                        new Document(CartOutbox.FIELD + "." + CartOutbox.CREATED_AT, 1)));
+
+        return Flux.fromIterable(queries.entrySet())
+                .concatMap(query -> mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cart.class))
+                        .flatMap(collection -> {
+                            QueryShape shape = query.getValue();
+                            return Mono.from(shape.sort() == null
+                                    ? collection.find(shape.filter()).explain()
+                                    : collection.find(shape.filter()).sort(shape.sort()).explain());
+                        })
+                        .filter(plan -> usesCollectionScan(plan.get("queryPlanner")))
+                        .map(plan -> query.getKey()))
+                .collectList()
+                .flatMap(unindexed -> {
+                    if (unindexed.isEmpty()) {
+                        log.info("Todas as consultas da coleção carts usam índice");
+                        return Mono.empty();
+                    }
+                    String message = "Consultas sem índice na coleção carts (COLLSCAN): " + unindexed;
+                    if ("fail".equalsIgnoreCase(planCheck)) {
+                        return Mono.error(new IllegalStateException(message));
+                    }
+                    log.warn(message);
+                    return Mono.empty();
+                });
+    }
+
+    // Procura um estágio COLLSCAN em qualquer nível do plano (inclusive planos de clusters com shards)
+    private boolean usesCollectionScan(Object node) {
+        if (node instanceof Document document) {
+            if (COLLSCAN.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.entrySet().stream()
+                    .filter(entry -> !"rejectedPlans".equals(entry.getKey()))
+                    .anyMatch(entry -> usesCollectionScan(entry.getValue()));
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(this::usesCollectionScan);
+        }
+        return false;
+    }
+
+    private record QueryShape(Document filter, Document sort) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.webflux.micromerce.cart.infrastructure.persistence;
+
+import org.bson.Document;
+
+import java.util.Date;
+import java.util.UUID;
+
+// Outbox embutido no próprio documento do carrinho: o evento é gravado na mesma atualização atômica
+// que altera o carrinho e removido pelo CartOutboxRelay depois de publicado no Kafka.
+public final class CartOutbox {
+
+    public static final String FIELD = "outbox";
+    public static final String EVENT_ID = "eventId";
+    public static final String EVENT_TYPE = "eventType";
+    public static final String CREATED_AT = "createdAt";
+
+    private CartOutbox() {
+    }
+
+    // O eventId é gerado uma única vez e reenviado em caso de nova tentativa, permitindo deduplicação no consumidor
+    public static Document entry(String eventType) {
+        return entry(UUID.randomUUID().toString(), eventType, new Date());
+    }
+
+    public static Document entry(String eventId, String eventType, Date createdAt) {
+        return new Document(EVENT_ID, eventId)
+                .append(EVENT_TYPE, eventType)
+                .append(CREATED_AT, createdAt);
+    }
+}
@@ -0,0 +1,56 @@
+package com.webflux.micromerce.cart.infrastructure.persistence;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.util.List;
+
+// Substitui o documento pelo carrinho em memória preservando o outbox já gravado (eventos ainda não
+// publicados pelo relay), acrescentando os novos eventos e marcando a alteração com o relógio do servidor.
+// Uma nova tentativa da mesma escrita não duplica eventos: entradas com o mesmo eventId são substituídas.
+// $literal evita que valores iniciados por "$" sejam interpretados como expressões.
+final class CartReplacement {
+
+    private CartReplacement() {
+    }
+
+    static AggregationUpdate keepingOutbox(MongoConverter converter, Cart cart, List<Document> events) {
+        Document document = new Document();
+        converter.write(cart, document);
+        AggregationOperation replace = context -> new Document("$replaceWith", new Document("$mergeObjects", List.of(
+                new Document("$literal", document),
+                new Document(CartOutbox.FIELD, outbox(events)).append(CartChangeStamp.FIELD, CartChangeStamp.SERVER_NOW))));
+        return AggregationUpdate.from(List.of(replace));
+    }
+
+    // Flush da escrita adiada: o documento só é substituído se a versão gravada for menor que a do carrinho
+    // (ou ausente). Outra instância pode já ter gravado uma versão mais nova do mesmo carrinho; nesse caso o
+    // documento fica como está e apenas os eventos desta escrita entram no outbox.
+    static AggregationUpdate keepingNewerVersion(MongoConverter converter, Cart cart, List<Document> events) {
+        if (cart.getVersion() == null) {
+            return keepingOutbox(converter, cart, events);
+        }
+        Document document = new Document();
+        converter.write(cart, document);
+        Document older = new Document("$or", List.of(
+                new Document("$eq", List.of(new Document("$type", "$version"), "missing")),
+                new Document("$lt", List.of("$version", cart.getVersion()))));
+        AggregationOperation replace = context -> new Document("$replaceWith", new Document("$mergeObjects", List.of(
+                new Document("$cond", List.of(older, new Document("$literal", document), "$$ROOT")),
+                new Document(CartOutbox.FIELD, outbox(events)).append(CartChangeStamp.FIELD,
+                        new Document("$cond", List.of(older, CartChangeStamp.SERVER_NOW, "$" + CartChangeStamp.FIELD))))));
+        return AggregationUpdate.from(List.of(replace));
+    }
+
+    private static Document outbox(List<Document> events) {
+        List<Object> eventIds = events.stream().map(event -> event.get(CartOutbox.EVENT_ID)).toList();
+        Document pending = new Document("$filter", new Document("input", new Document("$ifNull", List.of("$" + CartOutbox.FIELD, List.of())))
+                .append("as", "event")
+                .append("cond", new Document("$not", List.of(new Document("$in", List.of(
+                        "$$event." + CartOutbox.EVENT_ID, new Document("$literal", eventIds)))))));
+        return new Document("$concatArrays", List.of(pending, new Document("$literal", events)));
+    }
+}
@@ -0,0 +1,405 @@
+package com.webflux.micromerce.cart.infrastructure.persistence;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.infrastructure.redis.CartRedisRepository;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
+import com.webflux.micromerce.cart.infrastructure.redis.WriteJournal;
+import com.webflux.micromerce.cart.infrastructure.serialization.CompactCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Buffer de escrita adiada: guarda apenas a última versão de cada carrinho alterado e grava no MongoDB
+// em lotes (bulkWrite). Cada alteração é gravada no Redis com compare-and-set e registrada, no mesmo script,
+// em um stream que leva o carrinho serializado; o stream é relido na inicialização para que alterações ainda
+// não gravadas sobrevivam a uma queda do serviço, mesmo que a chave do carrinho já tenha expirado. Os eventos
+// do outbox acompanham a escrita e são gravados no mesmo documento do carrinho.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "true")
+public class CartWriteBehindBuffer {
+
+    private static final String STREAM_KEY = "cart-write-behind";
+    private static final String PENDING_KEY_PREFIX = "cart-write-behind:pending:";
+    // Escritas recusadas de forma definitiva pelo MongoDB (p.ex. índice único), guardadas para análise
+    private static final String DEAD_LETTER_KEY = "cart-write-behind:dead-letter";
+    private static final String ERROR_FIELD = "error";
+    private static final String CART_ID_FIELD = "cartId";
+    private static final String CART_FIELD = "cart";
+    private static final String EVENT_ID_FIELD = "eventId";
+    private static final String EVENT_TYPE_FIELD = "eventType";
+    private static final String CREATED_AT_FIELD = "createdAt";
+    private static final Duration SHUTDOWN_FLUSH_TIMEOUT = Duration.ofSeconds(10);
+    // Remove o marcador de pendência só se nenhuma versão mais nova foi registrada depois do flush
+    private static final RedisScript<Long> CLEAR_PENDING_SCRIPT = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final CartRedisRepository cartRedisRepository;
+    private final RedisService redisService;
+    private final CompactCodec codec;
+    private final Duration flushInterval;
+    private final int batchSize;
+    private final int maxPending;
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final Sinks.Many<Boolean> flushRequests = Sinks.many().multicast().directBestEffort();
+    private final Counter enqueued;
+    private final Counter coalesced;
+    private final Counter flushed;
+    private final Counter flushFailures;
+    private final Counter overflow;
+    private final Counter rejected;
+    private final Counter superseded;
+    private Disposable flusher;
+
+    public CartWriteBehindBuffer(ReactiveMongoTemplate mongoTemplate,
+                                 ReactiveStringRedisTemplate redisTemplate,
+                                 CartRedisRepository cartRedisRepository,
+                                 RedisService redisService,
+                                 @Qualifier("redisCartCodec") CompactCodec codec,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${cart.write-behind.flush-interval:1s}") Duration flushInterval,
+                                 @Value("${cart.write-behind.batch-size:500}") int batchSize,
+                                 @Value("${cart.write-behind.max-pending:10000}") int maxPending) {
+        this.mongoTemplate = mongoTemplate;
+        this.redisTemplate = redisTemplate;
+        this.cartRedisRepository = cartRedisRepository;
+        this.redisService = redisService;
+        this.codec = codec;
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.enqueued = Counter.builder("cart.write-behind.enqueued").register(meterRegistry);
+        this.coalesced = Counter.builder("cart.write-behind.coalesced").register(meterRegistry);
+        this.flushed = Counter.builder("cart.write-behind.flushed").register(meterRegistry);
+        this.flushFailures = Counter.builder("cart.write-behind.flush.failures").register(meterRegistry);
+        this.overflow = Counter.builder("cart.write-behind.overflow").register(meterRegistry);
+        this.rejected = Counter.builder("cart.write-behind.rejected").register(meterRegistry);
+        this.superseded = Counter.builder("cart.write-behind.superseded").register(meterRegistry);
+        Gauge.builder("cart.write-behind.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Gatilho por tempo (intervalo) ou por tamanho (flushRequests); concatMap garante um flush por vez
+        flusher = replay()
+                .thenMany(Flux.merge(Flux.interval(flushInterval).map(tick -> Boolean.TRUE), flushRequests.asFlux())
+                        .onBackpressureDrop()
+                        .concatMap(trigger -> flush()
+                                .onErrorResume(error -> {
+                                    log.error("Erro no flush do buffer de escrita adiada: {}", error.getMessage());
+                                    return Mono.empty();
+                                })))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+        flush().block(SHUTDOWN_FLUSH_TIMEOUT);
+    }
+
+    // Grava o carrinho no Redis com compare-and-set e o registra no stream de escrita adiada. false quando a
+    // versão esperada diverge ou quando a chave do carrinho sumiu com uma escrita ainda pendente
+    public Mono<Boolean> write(Cart cart, Long expectedVersion, String eventType) {
+        Cart snapshot = cart.copy();
+        List<Document> events = eventType == null ? List.of() : List.of(CartOutbox.entry(eventType));
+        if (pending.size() >= maxPending && !pending.containsKey(cart.getId())) {
+            // Buffer cheio: grava direto no MongoDB em vez de crescer sem limite
+            overflow.increment();
+            log.warn("Buffer de escrita adiada cheio ({} carrinhos). Gravando carrinho {} diretamente", pending.size(), cart.getId());
+            PendingWrite write = new PendingWrite(snapshot, events, List.of());
+            return redisService.compareAndSetCart(cart, expectedVersion)
+                    .flatMap(written -> written
+                            ? mongoTemplate.upsert(byId(write), replaceKeepingOutbox(write), Cart.class)
+                                    .doOnNext(result -> {
+                                        if (result.getUpsertedId() == null && result.getModifiedCount() == 0) {
+                                            superseded.increment();
+                                        }
+                                    })
+                                    .thenReturn(true)
+                            : Mono.just(false));
+        }
+        return Mono.fromCallable(() -> new WriteJournal(STREAM_KEY, PENDING_KEY_PREFIX + cart.getId(), toStreamFields(snapshot, events)))
+                .flatMap(journal -> redisService.compareAndSetCart(cart, expectedVersion, journal))
+                .map(recordId -> {
+                    enqueued.increment();
+                    pending.merge(cart.getId(), new PendingWrite(snapshot, events, List.of(RecordId.of(recordId))), (current, write) -> {
+                        coalesced.increment();
+                        return current.merge(write);
+                    });
+                    if (pending.size() >= batchSize) {
+                        flushRequests.tryEmitNext(Boolean.TRUE);
+                    }
+                    return true;
+                })
+                .defaultIfEmpty(false);
+    }
+
+    // Cópia da última versão ainda não gravada no MongoDB por esta instância
+    public Optional<Cart> pendingCart(String cartId) {
+        return Optional.ofNullable(pending.get(cartId)).map(write -> write.cart().copy());
+    }
+
+    public boolean isPending(String cartId) {
+        return pending.containsKey(cartId);
+    }
+
+    public void discard(String cartId) {
+        PendingWrite write = pending.remove(cartId);
+        if (write != null) {
+            deleteRecords(write.recordIds())
+                    .then(redisTemplate.delete(PENDING_KEY_PREFIX + cartId))
+                    .subscribe();
+        }
+    }
+
+    // Grava já a versão pendente do carrinho, fora do ciclo do flusher
+    public Mono<Void> flush(String cartId) {
+        return Mono.defer(() -> {
+            PendingWrite write = pending.remove(cartId);
+            return write == null ? Mono.<Void>empty() : writeBatch(List.of(write));
+        });
+    }
+
+    private Mono<Void> flush() {
+        return Flux.fromIterable(new ArrayList<>(pending.keySet()))
+                .mapNotNull(pending::remove)
+                .buffer(batchSize)
+                .concatMap(this::writeBatch)
+                .then();
+    }
+
+    private Mono<Void> writeBatch(List<PendingWrite> batch) {
+        ReactiveBulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Cart.class);
+        batch.forEach(write -> bulkOps.upsert(byId(write), replaceKeepingOutbox(write)));
+
+        return bulkOps.execute()
+                .doOnNext(result -> {
+                    log.debug("Flush de {} carrinhos para o MongoDB concluído", batch.size());
+                    // Documento encontrado e não alterado: outra instância já gravou uma versão igual ou mais nova
+                    superseded.increment(result.getMatchedCount() - result.getModifiedCount());
+                })
+                .flatMap(result -> completed(batch))
+                .onErrorResume(error -> {
+                    flushFailures.increment();
+                    log.error("Erro ao gravar lote de {} carrinhos no MongoDB: {}", batch.size(), error.getMessage());
+                    List<BulkWriteError> errors = bulkWriteErrors(error);
+                    if (errors.isEmpty()) {
+                        requeue(batch);
+                        return Mono.empty();
+                    }
+                    // Lote não ordenado: só as escritas com erro deixaram de ser aplicadas
+                    Map<Integer, BulkWriteError> errorsByIndex = new HashMap<>();
+                    errors.forEach(writeError -> errorsByIndex.put(writeError.getIndex(), writeError));
+                    List<PendingWrite> written = new ArrayList<>();
+                    List<PendingWrite> retry = new ArrayList<>();
+                    List<Mono<Void>> deadLetters = new ArrayList<>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        BulkWriteError writeError = errorsByIndex.get(i);
+                        if (writeError == null) {
+                            written.add(batch.get(i));
+                        } else if (writeError.getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                            deadLetters.add(deadLetter(batch.get(i), writeError.getMessage()));
+                        } else {
+                            retry.add(batch.get(i));
+                        }
+                    }
+                    requeue(retry);
+                    return completed(written).then(Flux.concat(deadLetters).then());
+                });
+    }
+
+    private Mono<Void> completed(List<PendingWrite> written) {
+        if (written.isEmpty()) {
+            return Mono.empty();
+        }
+        flushed.increment(written.size());
+        return deleteRecords(written.stream().flatMap(write -> write.recordIds().stream()).toList())
+                .then(clearPendingMarkers(written));
+    }
+
+    // Em caso de falha transitória as escritas voltam ao buffer, sem sobrescrever versões mais novas
+    private void requeue(List<PendingWrite> writes) {
+        writes.forEach(write -> pending.merge(write.cart().getId(), write, PendingWrite::merge));
+    }
+
+    // Violação de índice único não se resolve com nova tentativa: a escrita sai do buffer e vai para o
+    // dead-letter, e a cópia no Redis é descartada para que as leituras voltem ao estado gravado no MongoDB
+    private Mono<Void> deadLetter(PendingWrite write, String reason) {
+        String cartId = write.cart().getId();
+        rejected.increment();
+        log.error("Escrita adiada do carrinho {} (versão {}) recusada pelo MongoDB e descartada: {}",
+                cartId, write.cart().getVersion(), reason);
+        Map<String, String> fields = toStreamFields(write.cart(), write.events());
+        fields.put(ERROR_FIELD, String.valueOf(reason));
+        return redisTemplate.opsForStream().add(DEAD_LETTER_KEY, fields)
+                .then(deleteRecords(write.recordIds()))
+                .then(clearPendingMarkers(List.of(write)))
+                // Uma versão mais nova já no buffer mantém a cópia do Redis
+                .then(Mono.defer(() -> pending.containsKey(cartId) ? Mono.just(false) : redisService.deleteCart(cartId)))
+                .doOnError(error -> log.error("Erro ao mover a escrita do carrinho {} para o dead-letter: {}", cartId, error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private static List<BulkWriteError> bulkWriteErrors(Throwable error) {
+        if (error instanceof BulkOperationException bulk) {
+            return bulk.getErrors();
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulk) {
+                return bulk.getWriteErrors();
+            }
+        }
+        return List.of();
+    }
+
+    private Mono<Void> replay() {
+        // Um mesmo carrinho pode ter várias entradas no stream; vale o carrinho da entrada mais recente. Entradas
+        // antigas, sem o carrinho serializado, dependem da cópia ainda presente no Redis
+        return redisTemplate.<String, String>opsForStream()
+                .range(STREAM_KEY, Range.unbounded())
+                .collectMultimap(record -> record.getValue().get(CART_ID_FIELD))
+                .flatMapMany(recordsByCart -> Flux.fromIterable(recordsByCart.entrySet()))
+                .concatMap(entry -> {
+                    List<RecordId> recordIds = entry.getValue().stream().map(MapRecord::getId).toList();
+                    List<Document> events = entry.getValue().stream()
+                            .map(MapRecord::getValue)
+                            .filter(fields -> fields.containsKey(EVENT_ID_FIELD))
+                            .map(fields -> CartOutbox.entry(fields.get(EVENT_ID_FIELD), fields.get(EVENT_TYPE_FIELD),
+                                    new Date(Long.parseLong(fields.get(CREATED_AT_FIELD)))))
+                            .toList();
+                    return Mono.justOrEmpty(latestJournaledCart(entry.getValue()))
+                            .switchIfEmpty(Mono.defer(() -> cartRedisRepository.findById(entry.getKey())))
+                            .doOnNext(cart -> pending.merge(cart.getId(), new PendingWrite(cart, events, recordIds), PendingWrite::merge))
+                            .switchIfEmpty(Mono.defer(() -> {
+                                log.warn("Carrinho {} pendente de gravação não está no stream nem no Redis", entry.getKey());
+                                return deleteRecords(recordIds).then(Mono.empty());
+                            }));
+                })
+                .count()
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        log.info("Reaplicando {} carrinhos pendentes do stream de escrita adiada", count);
+                    }
+                })
+                .then(Mono.defer(this::flush))
+                .onErrorResume(error -> {
+                    log.error("Erro ao reaplicar o stream de escrita adiada: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Optional<Cart> latestJournaledCart(Collection<MapRecord<String, String, String>> records) {
+        Cart latest = null;
+        for (MapRecord<String, String, String> record : records) {
+            String encoded = record.getValue().get(CART_FIELD);
+            if (encoded != null) {
+                latest = codec.decode(Base64.getDecoder().decode(encoded), Cart.class);
+            }
+        }
+        return Optional.ofNullable(latest);
+    }
+
+    private Mono<Void> clearPendingMarkers(List<PendingWrite> batch) {
+        return Flux.fromIterable(batch)
+                .flatMap(write -> redisTemplate.execute(CLEAR_PENDING_SCRIPT,
+                        List.of(PENDING_KEY_PREFIX + write.cart().getId()), List.of(String.valueOf(write.cart().getVersion()))))
+                .doOnError(error -> log.error("Erro ao remover marcadores de escrita pendente: {}", error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private Map<String, String> toStreamFields(Cart cart, List<Document> events) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(CART_ID_FIELD, cart.getId());
+        fields.put(CART_FIELD, Base64.getEncoder().encodeToString(codec.encode(cart)));
+        events.forEach(event -> {
+            fields.put(EVENT_ID_FIELD, event.getString(CartOutbox.EVENT_ID));
+            fields.put(EVENT_TYPE_FIELD, event.getString(CartOutbox.EVENT_TYPE));
+            fields.put(CREATED_AT_FIELD, String.valueOf(event.getDate(CartOutbox.CREATED_AT).getTime()));
+        });
+        return fields;
+    }
+
+    private Query byId(PendingWrite write) {
+        return Query.query(Criteria.where("id").is(write.cart().getId()));
+    }
+
+    // Nunca volta o MongoDB para uma versão anterior: o stream e o compare-and-set no Redis são compartilhados
+    // entre as instâncias, mas cada uma tem o seu buffer, e o replay também relê entradas de instâncias vivas
+    private AggregationUpdate replaceKeepingOutbox(PendingWrite write) {
+        return CartReplacement.keepingNewerVersion(mongoTemplate.getConverter(), write.cart(), write.events());
+    }
+
+    private Mono<Void> deleteRecords(List<RecordId> recordIds) {
+        return redisTemplate.opsForStream()
+                .delete(STREAM_KEY, recordIds.toArray(RecordId[]::new))
+                .doOnError(error -> log.error("Erro ao remover {} entradas do stream de escrita adiada: {}", recordIds.size(), error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    // Mantém o carrinho de maior versão e acumula os eventos e as entradas do stream que ele cobre
+    private record PendingWrite(Cart cart, List<Document> events, List<RecordId> recordIds) {
+
+        PendingWrite merge(PendingWrite other) {
+            List<Document> mergedEvents = new ArrayList<>(events);
+            mergedEvents.addAll(other.events());
+            List<RecordId> merged = new ArrayList<>(recordIds);
+            merged.addAll(other.recordIds());
+            return new PendingWrite(isNewer(other.cart(), cart) ? other.cart() : cart, mergedEvents, merged);
+        }
+
+        private static boolean isNewer(Cart candidate, Cart current) {
+            if (candidate.getVersion() == null || current.getVersion() == null) {
+                return current.getVersion() == null;
+            }
+            return candidate.getVersion() >= current.getVersion();
+        }
+    }
+}
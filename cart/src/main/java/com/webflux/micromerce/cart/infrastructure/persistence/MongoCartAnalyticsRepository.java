@@ -0,0 +1,105 @@
+package com.webflux.micromerce.cart.infrastructure.persistence;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartAnalytics;
+import com.webflux.micromerce.cart.domain.repository.CartAnalyticsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Slf4j
+@Repository
+public class MongoCartAnalyticsRepository implements CartAnalyticsRepository {
+
+    // Limites inferiores dos buckets da distribuição de itens por carrinho; o último bucket é "100 ou mais"
+    private static final List<Integer> ITEM_BUCKETS = List.of(0, 1, 2, 3, 5, 10, 20, 50, 100);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int exportBatchSize;
+
+    public MongoCartAnalyticsRepository(ReactiveMongoTemplate mongoTemplate,
+                                        @Value("${cart.export.batch-size:500}") int exportBatchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.exportBatchSize = exportBatchSize;
+    }
+
+    // Uma única passada pelos carrinhos do período: o $facet calcula os três agrupamentos sobre o mesmo $match.
+    // totalAmount é gravado como string pelo conversor de BigDecimal: $toDecimal antes do $sum, que ignora strings
+    @Override
+    public Mono<CartAnalytics> aggregate(LocalDateTime from, LocalDateTime to) {
+        AggregationOperation itemCounts = context -> new Document("$project", new Document("status", 1)
+                .append("totalAmount", new Document("$toDecimal", "$totalAmount"))
+                .append("createdAt", 1)
+                .append("itemCount", new Document("$size", new Document("$ifNull", List.of("$items", List.of())))));
+
+        List<Document> byStatus = List.of(
+                new Document("$group", new Document("_id", "$status")
+                        .append("count", new Document("$sum", 1))
+                        .append("revenue", new Document("$sum", "$totalAmount"))
+                        .append("items", new Document("$sum", "$itemCount"))),
+                new Document("$project", new Document("_id", 0)
+                        .append("status", "$_id")
+                        .append("count", 1)
+                        .append("revenue", 1)
+                        .append("items", 1)));
+
+        List<Document> byDay = List.of(
+                new Document("$group", new Document("_id", new Document("day",
+                        new Document("$dateToString", new Document("format", "%Y-%m-%d").append("date", "$createdAt")))
+                        .append("status", "$status"))
+                        .append("count", new Document("$sum", 1))
+                        .append("revenue", new Document("$sum", "$totalAmount"))),
+                new Document("$project", new Document("_id", 0)
+                        .append("day", "$_id.day")
+                        .append("status", "$_id.status")
+                        .append("count", 1)
+                        .append("revenue", 1)),
+                new Document("$sort", new Document("day", 1).append("status", 1)));
+
+        List<Document> itemDistribution = List.of(
+                new Document("$bucket", new Document("groupBy", "$itemCount")
+                        .append("boundaries", ITEM_BUCKETS)
+                        .append("default", ITEM_BUCKETS.get(ITEM_BUCKETS.size() - 1))
+                        .append("output", new Document("count", new Document("$sum", 1)))),
+                new Document("$project", new Document("_id", 0)
+                        .append("minItems", "$_id")
+                        .append("count", 1)));
+
+        AggregationOperation facet = context -> new Document("$facet", new Document("byStatus", byStatus)
+                .append("byDay", byDay)
+                .append("itemDistribution", itemDistribution));
+
+        TypedAggregation<Cart> aggregation = Aggregation.newAggregation(Cart.class,
+                Aggregation.match(Criteria.where("createdAt").gte(from).lt(to)),
+                itemCounts,
+                facet);
+
+        return mongoTemplate.aggregate(aggregation, Document.class)
+                .next()
+                .map(result -> mongoTemplate.getConverter().read(CartAnalytics.class, result))
+                .defaultIfEmpty(CartAnalytics.builder().build())
+                .doOnError(error -> log.error("Erro ao agregar carrinhos entre {} e {}: {}", from, to, error.getMessage()));
+    }
+
+    @Override
+    public Flux<Cart> streamByCreatedAt(LocalDateTime from, LocalDateTime to) {
+        Query query = Query.query(Criteria.where("createdAt").gte(from).lt(to))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt", "id"))
+                .cursorBatchSize(exportBatchSize);
+        return mongoTemplate.find(query, Cart.class)
+                .doOnError(error -> log.error("Erro ao exportar carrinhos entre {} e {}: {}", from, to, error.getMessage()));
+    }
+}
@@ -1,25 +1,49 @@
 package com.webflux.micromerce.cart.infrastructure.persistence;
 
+import com.webflux.micromerce.cart.domain.event.CartEvent;
 import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
 import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.model.CartSummary;
 import com.webflux.micromerce.cart.domain.repository.CartRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Primary;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.bson.types.Decimal128;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.TypeInformation;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 @Slf4j
-@Primary
 @Repository
 public class MongoDBCartRepository implements CartRepository {
-    
+
+    private static final Decimal128 DECIMAL_ZERO = new Decimal128(BigDecimal.ZERO);
+    private static final int CURSOR_BATCH_SIZE = 500;
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+    private static final FindAndModifyOptions UPSERT = FindAndModifyOptions.options().upsert(true).returnNew(true);
+    private static final TypeInformation<CartItem> ITEM_TYPE = TypeInformation.of(CartItem.class);
+
     private final ReactiveMongoTemplate mongoTemplate;
 
     public MongoDBCartRepository(ReactiveMongoTemplate mongoTemplate) {
@@ -36,26 +60,56 @@ public class MongoDBCartRepository implements CartRepository {
 
     @Override
     public Mono<Cart> save(Cart cart) {
+        return save(cart, null);
+    }
+
+    @Override
+    public Mono<Cart> save(Cart cart, String eventType) {
         log.debug("Salvando carrinho: {}", cart);
-        return mongoTemplate.save(cart)
+        // Upsert por pipeline em vez de save(): mantém o outbox e grava changedAt com o relógio do servidor
+        if (cart.getId() == null) {
+            cart.setId(new ObjectId().toHexString());
+        }
+        Query query = Query.query(Criteria.where("id").is(cart.getId()));
+        List<Document> events = eventType == null ? List.of() : List.of(CartOutbox.entry(eventType));
+        return mongoTemplate.findAndModify(query, CartReplacement.keepingOutbox(mongoTemplate.getConverter(), cart, events),
+                        UPSERT, Cart.class)
                 .doOnSuccess(savedCart -> log.debug("Carrinho salvo com sucesso: {}", savedCart))
                 .doOnError(error -> log.error("Erro ao salvar carrinho: {}", error.getMessage()));
     }
 
     @Override
     public Mono<Cart> update(Cart cart) {
+        return update(cart, null);
+    }
+
+    @Override
+    public Mono<Cart> update(Cart cart, String eventType) {
         log.debug("Atualizando carrinho: {}", cart);
-        Query query = Query.query(Criteria.where("id").is(cart.getId()));
+        // Compare-and-set: só grava se a versão no banco ainda for a versão lida
+        Criteria criteria = Criteria.where("id").is(cart.getId());
+        criteria = cart.getVersion() == null
+                ? criteria.and("version").exists(false)
+                : criteria.and("version").is(cart.getVersion());
         Update update = new Update()
             .set("items", cart.getItems())
             .set("userId", cart.getUserId())
+            .set("description", cart.getDescription())
             .set("status", cart.getStatus())
-            .set("totalAmount", cart.getTotalAmount())
+            .set("totalAmount", toDecimal128(cart.getTotalAmount()))
             .set("promoCode", cart.getPromoCode())
             .set("discountAmount", cart.getDiscountAmount())
-            .set("updatedAt", LocalDateTime.now());
+            .set("completedAt", cart.getCompletedAt())
+            .set("updatedAt", LocalDateTime.now())
+            .inc("version", 1L)
+            .currentDate(CartChangeStamp.FIELD);
+        if (eventType != null) {
+            update.push(CartOutbox.FIELD, CartOutbox.entry(eventType));
+        }
         
-        return mongoTemplate.findAndModify(query, update, Cart.class)
+        return mongoTemplate.findAndModify(Query.query(criteria), update, RETURN_NEW, Cart.class)
+                .switchIfEmpty(Mono.error(() -> new OptimisticLockingFailureException(String.format(
+                        "Carrinho %s foi alterado concorrentemente (versão esperada: %s)", cart.getId(), cart.getVersion()))))
                 .doOnSuccess(updatedCart -> log.debug("Carrinho atualizado com sucesso: {}", updatedCart))
                 .doOnError(error -> log.error("Erro ao atualizar carrinho: {}", error.getMessage()));
     }
@@ -85,6 +139,31 @@ public class MongoDBCartRepository implements CartRepository {
                 .doOnError(error -> log.error("Erro ao buscar carrinhos do usuário {}: {}", userId, error.getMessage()));
     }
 
+    @Override
+    public Flux<CartSummary> findSummariesByUserId(String userId, LocalDateTime before, String beforeId, int limit) {
+        log.debug("Buscando resumo dos carrinhos do usuário {} antes de {} / {}", userId, before, beforeId);
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (before != null) {
+            criteria = beforeId == null
+                    ? criteria.and("createdAt").lt(before)
+                    : criteria.orOperator(
+                            Criteria.where("createdAt").lt(before),
+                            Criteria.where("createdAt").is(before).and("id").lt(beforeId));
+        }
+        // Projeção calculada no servidor: os itens não trafegam, apenas a sua quantidade
+        TypedAggregation<Cart> aggregation = Aggregation.newAggregation(Cart.class,
+                Aggregation.match(criteria),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "createdAt", "id")),
+                Aggregation.limit(limit),
+                Aggregation.project("status", "totalAmount", "discountAmount", "createdAt", "updatedAt")
+                        .and(ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull("items").then(List.of())))
+                        .as("itemCount"));
+
+        return mongoTemplate.aggregate(aggregation, CartSummary.class)
+                .doOnComplete(() -> log.debug("Busca de resumo dos carrinhos do usuário {} concluída", userId))
+                .doOnError(error -> log.error("Erro ao buscar resumo dos carrinhos do usuário {}: {}", userId, error.getMessage()));
+    }
+
     @Override
     public Mono<Cart> findByUserIdAndStatus(String userId, CartStatus status) {
         log.debug("Buscando carrinho do usuário {} com status {}", userId, status);
@@ -98,13 +177,47 @@ public class MongoDBCartRepository implements CartRepository {
     @Override
     public Flux<Cart> findAbandonedCarts(CartStatus status, LocalDateTime threshold) {
         log.debug("Buscando carrinhos abandonados com status {} e threshold {}", status, threshold);
-        return mongoTemplate.find(
-                Query.query(Criteria.where("status").is(status).and("updatedAt").lt(threshold)),
-                Cart.class)
+        Query query = Query.query(Criteria.where("status").is(status).and("updatedAt").lt(threshold))
+                .cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include("userId", "status", "totalAmount", "promoCode", "createdAt", "updatedAt");
+        return mongoTemplate.find(query, Cart.class)
                 .doOnComplete(() -> log.debug("Busca de carrinhos abandonados concluída"))
                 .doOnError(error -> log.error("Erro ao buscar carrinhos abandonados: {}", error.getMessage()));
     }
 
+    @Override
+    public Flux<String> markAbandoned(List<String> cartIds, LocalDateTime threshold) {
+        log.debug("Marcando {} carrinhos como abandonados", cartIds.size());
+        // O filtro repete status e updatedAt para não abandonar carrinhos alterados depois da leitura
+        Criteria stillStale = Criteria.where("id").in(cartIds)
+                .and("status").is(CartStatus.ACTIVE)
+                .and("updatedAt").lt(threshold);
+        // Marca de tempo explícita (em vez de $$NOW) para reconhecer depois os carrinhos alterados por esta chamada
+        Date abandonedAt = new Date();
+        AggregationOperation abandon = context -> new Document("$set", new Document("status", CartStatus.ABANDONED.name())
+                .append("updatedAt", abandonedAt));
+        // Um único updateMany: o eventId de cada carrinho é derivado do id e da nova versão
+        Document eventId = new Document("$concat", List.of(
+                new Document("$toString", "$_id"), ":", new Document("$toString", "$version")));
+        AggregationUpdate update = AggregationUpdate.from(List.of(
+                abandon, incrementVersion(), appendOutbox(eventId, CartEvent.EventType.CART_ABANDONED)));
+
+        return mongoTemplate.updateMulti(Query.query(stillStale), update, Cart.class)
+                .flatMapMany(result -> {
+                    if (result.getModifiedCount() == cartIds.size()) {
+                        return Flux.fromIterable(cartIds);
+                    }
+                    // Só os carrinhos abandonados por esta chamada: os que já estavam ABANDONED não geram de novo
+                    // evento, contagem nem limpeza de cache
+                    Query abandoned = Query.query(Criteria.where("id").in(cartIds)
+                            .and("status").is(CartStatus.ABANDONED)
+                            .and("updatedAt").is(abandonedAt));
+                    abandoned.fields().include("id");
+                    return mongoTemplate.find(abandoned, Cart.class).map(Cart::getId);
+                })
+                .doOnError(error -> log.error("Erro ao marcar carrinhos como abandonados: {}", error.getMessage()));
+    }
+
     @Override
     public Flux<Cart> findByUserIdAndStatusBetweenDates(String userId, CartStatus status, LocalDateTime startDate, LocalDateTime endDate) {
         log.debug("Buscando carrinhos do usuário {} com status {} entre {} e {}", userId, status, startDate, endDate);
@@ -124,4 +237,122 @@ public class MongoDBCartRepository implements CartRepository {
                 .doOnComplete(() -> log.debug("Busca de carrinhos por status {} concluída", status))
                 .doOnError(error -> log.error("Erro ao buscar carrinhos por status {}: {}", status, error.getMessage()));
     }
+
+    @Override
+    public Mono<Cart> pushItem(String cartId, CartItem item) {
+        log.debug("Adicionando item {} ao carrinho {} de forma atômica", item.getProductId(), cartId);
+        Query query = Query.query(Criteria.where("id").is(cartId).and("status").is(CartStatus.ACTIVE));
+
+        return mongoTemplate.findAndModify(query, AggregationUpdate.from(List.of(appendItems(List.of(item), item.getSubtotal()),
+                                incrementVersion(), appendOutbox(UUID.randomUUID().toString(), CartEvent.EventType.ITEM_ADDED))),
+                        RETURN_NEW, Cart.class)
+                .doOnSuccess(cart -> log.debug("Item adicionado ao carrinho {}: {}", cartId, cart))
+                .doOnError(error -> log.error("Erro ao adicionar item ao carrinho {}: {}", cartId, error.getMessage()));
+    }
+
+    @Override
+    public Mono<Cart> pushItems(String cartId, List<CartItem> items) {
+        log.debug("Adicionando {} itens ao carrinho {} de forma atômica", items.size(), cartId);
+        BigDecimal subtotal = items.stream()
+                .map(CartItem::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Query query = Query.query(Criteria.where("id").is(cartId).and("status").is(CartStatus.ACTIVE));
+
+        return mongoTemplate.findAndModify(query, AggregationUpdate.from(List.of(appendItems(items, subtotal),
+                                incrementVersion(), appendOutbox(UUID.randomUUID().toString(), CartEvent.EventType.ITEM_ADDED))),
+                        RETURN_NEW, Cart.class)
+                .doOnSuccess(cart -> log.debug("{} itens adicionados ao carrinho {}", items.size(), cartId))
+                .doOnError(error -> log.error("Erro ao adicionar itens ao carrinho {}: {}", cartId, error.getMessage()));
+    }
+
+    @Override
+    public Mono<Cart> setItemQuantity(String cartId, String productId, int quantity) {
+        log.debug("Atualizando quantidade do produto {} no carrinho {} para {}", productId, cartId, quantity);
+        Query query = Query.query(Criteria.where("id").is(cartId)
+                .and("status").is(CartStatus.ACTIVE)
+                .and("items.productId").is(productId));
+        // O total depende da quantidade anterior, por isso é recalculado no servidor na mesma operação
+        AggregationOperation setQuantity = context -> new Document("$set", new Document("items",
+                new Document("$map", new Document("input", "$items")
+                        .append("as", "item")
+                        .append("in", new Document("$cond", List.of(
+                                new Document("$eq", List.of("$$item.productId", productId)),
+                                new Document("$mergeObjects", List.of("$$item", new Document("quantity", quantity))),
+                                "$$item"))))));
+
+        return mongoTemplate.findAndModify(query, AggregationUpdate.from(List.of(setQuantity, recalculateTotal(), incrementVersion(),
+                                appendOutbox(UUID.randomUUID().toString(), CartEvent.EventType.CART_UPDATED))),
+                        RETURN_NEW, Cart.class)
+                .doOnSuccess(cart -> log.debug("Quantidade atualizada no carrinho {}: {}", cartId, cart))
+                .doOnError(error -> log.error("Erro ao atualizar quantidade no carrinho {}: {}", cartId, error.getMessage()));
+    }
+
+    @Override
+    public Mono<Cart> pullItem(String cartId, String itemId) {
+        log.debug("Removendo item {} do carrinho {} de forma atômica", itemId, cartId);
+        // Sem o item ou com o carrinho inativo o filtro não casa: nenhuma versão, total ou evento é gravado
+        Query query = Query.query(Criteria.where("id").is(cartId)
+                .and("status").is(CartStatus.ACTIVE)
+                .and("items._id").is(itemId));
+        AggregationOperation removeItem = context -> new Document("$set", new Document("items",
+                new Document("$filter", new Document("input", "$items")
+                        .append("as", "item")
+                        .append("cond", new Document("$ne", List.of("$$item._id", itemId))))));
+
+        return mongoTemplate.findAndModify(query, AggregationUpdate.from(List.of(removeItem, recalculateTotal(), incrementVersion(),
+                                appendOutbox(UUID.randomUUID().toString(), CartEvent.EventType.ITEM_REMOVED))),
+                        RETURN_NEW, Cart.class)
+                .doOnSuccess(cart -> log.debug("Item {} removido do carrinho {}", itemId, cartId))
+                .doOnError(error -> log.error("Erro ao remover item {} do carrinho {}: {}", itemId, cartId, error.getMessage()));
+    }
+
+    private AggregationOperation recalculateTotal() {
+        // total = soma(unitPrice * quantity) - desconto; unitPrice e discountAmount podem estar gravados como texto
+        Document subtotal = new Document("$multiply", List.of(
+                new Document("$toDecimal", "$$this.unitPrice"), "$$this.quantity"));
+        Document itemsTotal = new Document("$reduce", new Document("input", "$items")
+                .append("initialValue", DECIMAL_ZERO)
+                .append("in", new Document("$add", List.of("$$value", subtotal))));
+        Document discount = new Document("$ifNull", List.of(new Document("$toDecimal", "$discountAmount"), DECIMAL_ZERO));
+
+        return context -> new Document("$set", new Document("totalAmount", new Document("$subtract", List.of(itemsTotal, discount)))
+                .append("updatedAt", "$$NOW"));
+    }
+
+    // Equivalente, em pipeline, a $push dos itens com $inc do total: totalAmount pode estar gravado como texto
+    // em carrinhos antigos, e $inc recusa campos não numéricos
+    private AggregationOperation appendItems(List<CartItem> items, BigDecimal subtotal) {
+        List<Object> documents = items.stream()
+                .map(item -> mongoTemplate.getConverter().convertToMongoType(item, ITEM_TYPE))
+                .toList();
+        // $literal: valores dos itens iniciados por $ não devem ser lidos como expressões
+        return context -> new Document("$set", new Document("items", new Document("$concatArrays", List.of(
+                        new Document("$ifNull", List.of("$items", List.of())),
+                        new Document("$literal", documents))))
+                .append("totalAmount", new Document("$add", List.of(
+                        new Document("$ifNull", List.of(new Document("$toDecimal", "$totalAmount"), DECIMAL_ZERO)),
+                        new Decimal128(subtotal))))
+                .append("updatedAt", "$$NOW"));
+    }
+
+    // Toda nova versão recebe também a marca de alteração do servidor
+    private AggregationOperation incrementVersion() {
+        return context -> new Document("$set", new Document("version",
+                new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L)))
+                .append(CartChangeStamp.FIELD, CartChangeStamp.SERVER_NOW));
+    }
+
+    // Equivalente, em pipeline, ao $push de CartOutbox.entry; eventId pode ser uma expressão
+    private AggregationOperation appendOutbox(Object eventId, String eventType) {
+        Document entry = new Document(CartOutbox.EVENT_ID, eventId)
+                .append(CartOutbox.EVENT_TYPE, eventType)
+                .append(CartOutbox.CREATED_AT, "$$NOW");
+        return context -> new Document("$set", new Document(CartOutbox.FIELD, new Document("$concatArrays", List.of(
+                new Document("$ifNull", List.of("$" + CartOutbox.FIELD, List.of())),
+                List.of(entry)))));
+    }
+
+    private Decimal128 toDecimal128(BigDecimal value) {
+        return value != null ? new Decimal128(value) : null;
+    }
 }
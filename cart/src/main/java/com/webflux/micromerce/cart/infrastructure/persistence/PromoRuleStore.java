@@ -0,0 +1,58 @@
+package com.webflux.micromerce.cart.infrastructure.persistence;
+
+import com.webflux.micromerce.cart.domain.model.PromoRule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Regras promocionais no MongoDB. Cada alteração publica uma notificação no Redis para que todos os nós
+// recarreguem o conjunto de regras.
+@Slf4j
+@Component
+public class PromoRuleStore {
+
+    public static final String CHANGES_CHANNEL = "promo-rules-changed";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public PromoRuleStore(ReactiveMongoTemplate mongoTemplate, ReactiveStringRedisTemplate redisTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.redisTemplate = redisTemplate;
+    }
+
+    public Flux<PromoRule> findActive() {
+        return mongoTemplate.find(Query.query(Criteria.where("active").is(true)), PromoRule.class);
+    }
+
+    public Mono<Long> count() {
+        return mongoTemplate.count(new Query(), PromoRule.class);
+    }
+
+    public Mono<PromoRule> save(PromoRule rule) {
+        return mongoTemplate.save(rule)
+                .flatMap(saved -> notifyChange(saved.getCode()).thenReturn(saved));
+    }
+
+    public Mono<Void> delete(String code) {
+        return mongoTemplate.remove(Query.query(Criteria.where("code").is(code)), PromoRule.class)
+                .then(notifyChange(code));
+    }
+
+    public Flux<String> changes() {
+        return redisTemplate.listenToChannel(CHANGES_CHANNEL)
+                .map(message -> message.getMessage());
+    }
+
+    private Mono<Void> notifyChange(String code) {
+        return redisTemplate.convertAndSend(CHANGES_CHANNEL, code)
+                .doOnError(error -> log.error("Erro ao notificar alteração do código promocional {}: {}", code, error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+}
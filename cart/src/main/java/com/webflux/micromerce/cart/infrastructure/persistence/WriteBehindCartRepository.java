@@ -0,0 +1,223 @@
+package com.webflux.micromerce.cart.infrastructure.persistence;
+
+import com.webflux.micromerce.cart.domain.event.CartEvent;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.model.CartSummary;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import com.webflux.micromerce.cart.infrastructure.redis.RedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Modo write-behind: as alterações são aplicadas com compare-and-set na cópia do Redis, que passa a ser
+// a fonte da verdade, e chegam ao MongoDB pelo CartWriteBehindBuffer. Criação, exclusão e consultas
+// por lista continuam indo direto ao MongoDB, que pode estar atrasado até um intervalo de flush.
+@Slf4j
+@Primary
+@Repository
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "true")
+public class WriteBehindCartRepository implements CartRepository {
+
+    private final MongoDBCartRepository mongoRepository;
+    private final RedisService redisService;
+    private final CartWriteBehindBuffer writeBuffer;
+    private final long maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+
+    public WriteBehindCartRepository(MongoDBCartRepository mongoRepository,
+                                     RedisService redisService,
+                                     CartWriteBehindBuffer writeBuffer,
+                                     @Value("${cart.update.max-retries:5}") long maxRetries,
+                                     @Value("${cart.update.min-backoff:20ms}") Duration minBackoff,
+                                     @Value("${cart.update.max-backoff:500ms}") Duration maxBackoff) {
+        this.mongoRepository = mongoRepository;
+        this.redisService = redisService;
+        this.writeBuffer = writeBuffer;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Override
+    public Mono<Cart> save(Cart cart) {
+        return save(cart, null);
+    }
+
+    @Override
+    public Mono<Cart> save(Cart cart, String eventType) {
+        Mono<Void> uniqueness = cart.getStatus() == CartStatus.ACTIVE ? checkActiveCartUniqueness(cart) : Mono.empty();
+        return uniqueness
+                .then(Mono.defer(() -> mongoRepository.save(cart, eventType)))
+                .flatMap(savedCart -> redisService.setCart(savedCart).thenReturn(savedCart));
+    }
+
+    // O índice active_cart_per_user só enxerga o MongoDB, que pode estar atrasado: o carrinho ativo gravado lá
+    // é conferido pela cópia do Redis antes de aceitar a criação. Ainda ativo, a criação é recusada agora, e não
+    // no flush (que a mandaria para o dead-letter); já fora de ACTIVE com escrita pendente nesta instância, a
+    // versão pendente é gravada primeiro para liberar o índice. Pendente em outra instância, o índice recusa.
+    private Mono<Void> checkActiveCartUniqueness(Cart cart) {
+        return mongoRepository.findByUserIdAndStatus(cart.getUserId(), CartStatus.ACTIVE)
+                .filter(active -> !active.getId().equals(cart.getId()))
+                .flatMap(active -> findById(active.getId()).defaultIfEmpty(active))
+                .flatMap(current -> current.getStatus() == CartStatus.ACTIVE
+                        ? Mono.<Void>error(new DuplicateKeyException(String.format(
+                                "Usuário %s já possui o carrinho ativo %s (active_cart_per_user)", cart.getUserId(), current.getId())))
+                        : writeBuffer.flush(current.getId()));
+    }
+
+    // Sem a chave no Redis, a cópia pendente desta instância vem antes do MongoDB, que ainda não tem a última versão
+    @Override
+    public Mono<Cart> findById(String id) {
+        return redisService.getCart(id)
+                .switchIfEmpty(Mono.defer(() -> Mono.justOrEmpty(writeBuffer.pendingCart(id))))
+                .switchIfEmpty(Mono.defer(() -> mongoRepository.findById(id)));
+    }
+
+    @Override
+    public Mono<Cart> update(Cart cart) {
+        return update(cart, null);
+    }
+
+    // O evento do outbox acompanha a escrita adiada e chega ao MongoDB no mesmo flush do carrinho
+    @Override
+    public Mono<Cart> update(Cart cart, String eventType) {
+        Long expectedVersion = cart.getVersion();
+        cart.setVersion(expectedVersion == null ? 1L : expectedVersion + 1);
+        cart.setUpdatedAt(LocalDateTime.now());
+
+        return writeBuffer.write(cart, expectedVersion, eventType)
+                .flatMap(written -> written
+                        ? Mono.just(cart)
+                        : Mono.error(new OptimisticLockingFailureException(String.format(
+                                "Carrinho %s foi alterado concorrentemente (versão esperada: %s)", cart.getId(), expectedVersion))))
+                .doOnSuccess(updatedCart -> log.debug("Carrinho {} atualizado em Redis, gravação no MongoDB adiada", cart.getId()));
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        writeBuffer.discard(id);
+        return mongoRepository.deleteById(id)
+                .then(redisService.deleteCart(id))
+                .then();
+    }
+
+    @Override
+    public Flux<Cart> findAll() {
+        return mongoRepository.findAll();
+    }
+
+    @Override
+    public Flux<Cart> findByUserId(String userId) {
+        return mongoRepository.findByUserId(userId);
+    }
+
+    @Override
+    public Flux<CartSummary> findSummariesByUserId(String userId, LocalDateTime before, String beforeId, int limit) {
+        return mongoRepository.findSummariesByUserId(userId, before, beforeId, limit);
+    }
+
+    @Override
+    public Mono<Cart> findByUserIdAndStatus(String userId, CartStatus status) {
+        return mongoRepository.findByUserIdAndStatus(userId, status);
+    }
+
+    @Override
+    public Flux<Cart> findAbandonedCarts(CartStatus status, LocalDateTime threshold) {
+        return mongoRepository.findAbandonedCarts(status, threshold);
+    }
+
+    // Carrinhos com escrita pendente tiveram atividade recente, mesmo que o MongoDB ainda não reflita isso
+    @Override
+    public Flux<String> markAbandoned(List<String> cartIds, LocalDateTime threshold) {
+        List<String> idle = cartIds.stream()
+                .filter(cartId -> !writeBuffer.isPending(cartId))
+                .toList();
+        return idle.isEmpty() ? Flux.empty() : mongoRepository.markAbandoned(idle, threshold);
+    }
+
+    @Override
+    public Flux<Cart> findByUserIdAndStatusBetweenDates(String userId, CartStatus status, LocalDateTime startDate, LocalDateTime endDate) {
+        return mongoRepository.findByUserIdAndStatusBetweenDates(userId, status, startDate, endDate);
+    }
+
+    @Override
+    public Flux<Cart> findByStatus(CartStatus status) {
+        return mongoRepository.findByStatus(status);
+    }
+
+    // As operações de item seguem a mesma semântica do MongoDBCartRepository: vazio quando o filtro não casa
+
+    @Override
+    public Mono<Cart> pushItem(String cartId, CartItem item) {
+        return mutate(cartId, CartEvent.EventType.ITEM_ADDED, cart -> {
+            if (cart.getStatus() != CartStatus.ACTIVE) {
+                return false;
+            }
+            cart.addItem(item.toBuilder().build());
+            return true;
+        });
+    }
+
+    @Override
+    public Mono<Cart> pushItems(String cartId, List<CartItem> items) {
+        return mutate(cartId, CartEvent.EventType.ITEM_ADDED, cart -> {
+            if (cart.getStatus() != CartStatus.ACTIVE) {
+                return false;
+            }
+            items.forEach(item -> cart.addItem(item.toBuilder().build()));
+            return true;
+        });
+    }
+
+    @Override
+    public Mono<Cart> setItemQuantity(String cartId, String productId, int quantity) {
+        return mutate(cartId, CartEvent.EventType.CART_UPDATED, cart -> {
+            if (cart.getStatus() != CartStatus.ACTIVE
+                    || cart.getItems().stream().noneMatch(item -> productId.equals(item.getProductId()))) {
+                return false;
+            }
+            cart.getItems().stream()
+                    .filter(item -> productId.equals(item.getProductId()))
+                    .forEach(item -> cart.updateItemQuantity(item.getId(), quantity));
+            return true;
+        });
+    }
+
+    @Override
+    public Mono<Cart> pullItem(String cartId, String itemId) {
+        return mutate(cartId, CartEvent.EventType.ITEM_REMOVED, cart -> {
+            if (cart.getStatus() != CartStatus.ACTIVE
+                    || cart.getItems().stream().noneMatch(item -> itemId.equals(item.getId()))) {
+                return false;
+            }
+            cart.removeItem(itemId);
+            cart.setUpdatedAt(LocalDateTime.now());
+            return true;
+        });
+    }
+
+    private Mono<Cart> mutate(String cartId, String eventType, Predicate<Cart> mutation) {
+        return Mono.defer(() -> findById(cartId)
+                        .filter(mutation)
+                        .flatMap(cart -> update(cart, eventType)))
+                .retryWhen(Retry.backoff(maxRetries, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .jitter(0.5)
+                        .filter(OptimisticLockingFailureException.class::isInstance));
+    }
+}
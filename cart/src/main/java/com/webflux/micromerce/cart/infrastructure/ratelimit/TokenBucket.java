@@ -0,0 +1,31 @@
+package com.webflux.micromerce.cart.infrastructure.ratelimit;
+
+// Token bucket em memória: até capacity requisições em rajada, repostas à taxa refillPerSecond.
+// Os instantes são passados pelo chamador (System.nanoTime()), o que permite testar sem esperar.
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, double refillPerSecond, long now) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    // Consome um token e retorna 0, ou retorna o tempo (ns) até haver um token disponível
+    public synchronized long tryConsume(long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+        }
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / refillPerNano);
+    }
+}
@@ -0,0 +1,52 @@
+package com.webflux.micromerce.cart.infrastructure.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+// Ponteiro user:{userId}:active-cart para o carrinho ACTIVE do usuário. NONE registra que o usuário não tem
+// carrinho ativo, para que usuários sem carrinho não levem cada leitura ao MongoDB.
+@Component
+@RequiredArgsConstructor
+public class ActiveCartPointer {
+
+    public static final String NONE = "none";
+
+    private static final String KEY_PREFIX = "user:";
+    private static final String KEY_SUFFIX = ":active-cart";
+    // Só remove o ponteiro se ele ainda apontar para o carrinho que saiu de ACTIVE
+    private static final RedisScript<Long> CLEAR_SCRIPT = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public Mono<String> get(String userId) {
+        return redisTemplate.opsForValue().get(key(userId));
+    }
+
+    // Usado na criação/alteração de um carrinho ativo; substitui inclusive o marcador NONE
+    public Mono<Boolean> set(String userId, String cartId, Duration ttl) {
+        return redisTemplate.opsForValue().set(key(userId), cartId, ttl);
+    }
+
+    // Usado no preenchimento a partir do MongoDB: não sobrescreve um ponteiro gravado por uma escrita concorrente
+    public Mono<Boolean> setIfAbsent(String userId, String cartId, Duration ttl) {
+        return redisTemplate.opsForValue().setIfAbsent(key(userId), cartId, ttl);
+    }
+
+    public Mono<Boolean> clear(String userId, String cartId) {
+        return redisTemplate.execute(CLEAR_SCRIPT, List.of(key(userId)), List.of(cartId))
+                .next()
+                .map(result -> result == 1L);
+    }
+
+    private static String key(String userId) {
+        return KEY_PREFIX + userId + KEY_SUFFIX;
+    }
+}
@@ -0,0 +1,86 @@
+package com.webflux.micromerce.cart.infrastructure.redis;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Índices secundários (sets de ids por usuário e por status), comuns aos dois layouts do CartRedisRepository
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class CartRedisIndexes {
+
+    static final String USER_INDEX_PREFIX = "cart-idx:user:";
+    static final String STATUS_INDEX_PREFIX = "cart-idx:status:";
+    private static final int BATCH_SIZE = 500;
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    Mono<Void> update(Cart cart, Duration ttl) {
+        List<Mono<?>> commands = new ArrayList<>();
+        if (cart.getUserId() != null) {
+            String userIndexKey = USER_INDEX_PREFIX + cart.getUserId();
+            commands.add(redisTemplate.opsForSet().add(userIndexKey, cart.getId()));
+            commands.add(redisTemplate.expire(userIndexKey, ttl));
+        }
+        for (CartStatus status : CartStatus.values()) {
+            String statusIndexKey = STATUS_INDEX_PREFIX + status;
+            commands.add(status == cart.getStatus()
+                    ? redisTemplate.opsForSet().add(statusIndexKey, cart.getId())
+                    : redisTemplate.opsForSet().remove(statusIndexKey, cart.getId()));
+        }
+        // Os comandos são emitidos em paralelo na mesma conexão, o Lettuce os envia em pipeline
+        return Mono.when(commands);
+    }
+
+    Mono<Void> remove(Cart cart) {
+        List<Mono<?>> commands = new ArrayList<>();
+        if (cart.getUserId() != null) {
+            commands.add(redisTemplate.opsForSet().remove(USER_INDEX_PREFIX + cart.getUserId(), cart.getId()));
+        }
+        for (CartStatus status : CartStatus.values()) {
+            commands.add(redisTemplate.opsForSet().remove(STATUS_INDEX_PREFIX + status, cart.getId()));
+        }
+        return Mono.when(commands);
+    }
+
+    // O índice de usuário é limpo de forma preguiçosa nas leituras
+    Mono<Long> removeFromActive(List<String> ids) {
+        return redisTemplate.opsForSet().remove(STATUS_INDEX_PREFIX + CartStatus.ACTIVE, ids.toArray());
+    }
+
+    Flux<List<String>> byUser(String userId) {
+        return redisTemplate.opsForSet().members(USER_INDEX_PREFIX + userId)
+                .buffer(BATCH_SIZE);
+    }
+
+    // O índice de status pode ser grande, então é percorrido com SSCAN em vez de SMEMBERS
+    Flux<List<String>> byStatus(String status) {
+        return redisTemplate.opsForSet().scan(STATUS_INDEX_PREFIX + status)
+                .buffer(BATCH_SIZE);
+    }
+
+    Flux<List<String>> byUserAndStatus(String userId, String status) {
+        return redisTemplate.opsForSet().intersect(USER_INDEX_PREFIX + userId, STATUS_INDEX_PREFIX + status)
+                .buffer(BATCH_SIZE);
+    }
+
+    // Entradas cujo carrinho já expirou são removidas do índice de forma preguiçosa
+    Mono<Void> removeExpired(String indexKey, List<String> expiredIds) {
+        if (expiredIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return redisTemplate.opsForSet().remove(indexKey, expiredIds.toArray())
+                .doOnNext(removed -> log.debug("Removidas {} entradas expiradas do índice {}", removed, indexKey))
+                .then();
+    }
+}
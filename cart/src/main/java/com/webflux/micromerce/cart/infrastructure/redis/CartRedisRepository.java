@@ -1,58 +1,59 @@
 package com.webflux.micromerce.cart.infrastructure.redis;
 
 import com.webflux.micromerce.cart.domain.model.Cart;
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.ReactiveRedisTemplate;
-import org.springframework.stereotype.Repository;
+import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.List;
 
-@Repository
-@RequiredArgsConstructor
-public class CartRedisRepository {
-    
-    private final ReactiveRedisTemplate<String, Cart> redisTemplate;
-    private static final String KEY_PREFIX = "cart:";
-    private static final Duration CACHE_TTL = Duration.ofHours(24);
-
-    public Mono<Cart> save(Cart cart) {
-        String key = KEY_PREFIX + cart.getId();
-        return redisTemplate.opsForValue()
-                .set(key, cart, CACHE_TTL)
-                .thenReturn(cart);
-    }
+// Cópia dos carrinhos no Redis. O layout é escolhido por cart.redis.layout: "value" guarda o carrinho
+// serializado em uma única chave; "hash" guarda cabeçalho e itens em campos de um hash.
+public interface CartRedisRepository {
 
-    public Mono<Cart> findById(String id) {
-        String key = KEY_PREFIX + id;
-        return redisTemplate.opsForValue().get(key);
-    }
+    // Retorna vazio quando o Redis já guarda uma versão mais nova do carrinho
+    Mono<Cart> save(Cart cart);
+
+    // Grava somente se a versão em Redis ainda for a esperada; uma chave ausente é tratada como livre
+    Mono<Boolean> compareAndSet(Cart cart, Long expectedVersion);
+
+    // Compare-and-set do modo write-behind: grava o carrinho e a entrada do journal no mesmo script. Retorna o
+    // id da entrada no stream, ou vazio quando a versão diverge ou a chave ausente ainda tem escrita pendente
+    Mono<String> compareAndSetJournaled(Cart cart, Long expectedVersion, WriteJournal journal);
+
+    Mono<Cart> findById(String id);
+
+    Mono<Boolean> deleteById(String id);
+
+    Mono<Long> deleteByIds(List<String> ids);
+
+    Flux<Cart> findByUserId(String userId);
+
+    Flux<Cart> findByStatus(String status);
+
+    Flux<Cart> findByUserIdAndStatus(String userId, String status);
+
+    // Tempo restante até a expiração da chave do carrinho
+    Mono<Duration> remainingTtl(String id);
+
+    // As operações abaixo recebem o carrinho já alterado (versão nova) e a alteração aplicada. O layout em
+    // valor único regrava o carrinho inteiro; o layout em hash altera apenas os campos envolvidos.
 
-    public Mono<Boolean> deleteById(String id) {
-        String key = KEY_PREFIX + id;
-        return redisTemplate.opsForValue().delete(key);
+    default Mono<Cart> addItems(Cart cart, List<CartItem> items) {
+        return save(cart);
     }
 
-    public Flux<Cart> findByUserId(String userId) {
-        String pattern = KEY_PREFIX + "*";
-        return redisTemplate.keys(pattern)
-                .flatMap(key -> redisTemplate.opsForValue().get(key))
-                .filter(cart -> cart.getUserId().equals(userId));
+    default Mono<Cart> setItemQuantity(Cart cart, List<String> itemIds, int quantity) {
+        return save(cart);
     }
 
-    public Flux<Cart> findByStatus(String status) {
-        String pattern = KEY_PREFIX + "*";
-        return redisTemplate.keys(pattern)
-                .flatMap(key -> redisTemplate.opsForValue().get(key))
-                .filter(cart -> cart.getStatus().toString().equals(status));
+    default Mono<Cart> applyPromoCode(Cart cart) {
+        return save(cart);
     }
 
-    public Flux<Cart> findByUserIdAndStatus(String userId, String status) {
-        String pattern = KEY_PREFIX + "*";
-        return redisTemplate.keys(pattern)
-                .flatMap(key -> redisTemplate.opsForValue().get(key))
-                .filter(cart -> cart.getUserId().equals(userId) && 
-                              cart.getStatus().toString().equals(status));
+    default Mono<CartStatus> findStatus(String id) {
+        return findById(id).mapNotNull(Cart::getStatus);
     }
-}
\ No newline at end of file
+}
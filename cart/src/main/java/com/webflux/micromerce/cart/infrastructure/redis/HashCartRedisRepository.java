@@ -0,0 +1,440 @@
+package com.webflux.micromerce.cart.infrastructure.redis;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Layout em hash: cada campo do cabeçalho e cada item ficam em campos próprios de cart-h:{id}, de modo que
+// incluir item, alterar quantidade e aplicar promoção sejam HSET/HINCRBY em um script Lua que também mantém
+// o total. Valores monetários são guardados em unidades de 1/10000 para permitir HINCRBY.
+// RedisJSON não é usado porque não está disponível na imagem redis padrão do docker-compose.
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "cart.redis.layout", havingValue = "hash")
+public class HashCartRedisRepository implements CartRedisRepository {
+
+    private static final String KEY_PREFIX = "cart-h:";
+    private static final Duration CACHE_TTL = Duration.ofHours(24);
+    private static final int MONEY_SCALE = 4;
+    private static final String NO_EXPECTED_VERSION = "";
+
+    private static final String ITEM = "item:";
+    private static final String QUANTITY = "qty:";
+    private static final String PRICE = "price:";
+    private static final String POSITION = "pos:";
+    private static final String ITEM_SEQUENCE = "itemSeq";
+    private static final String TOTAL_UNITS = "totalUnits";
+    private static final String DISCOUNT_UNITS = "discountUnits";
+
+    // Resultados das operações por campo: aplicada, versão divergente (regrava o carrinho inteiro) e chave ausente
+    private static final long APPLIED = 1L;
+    private static final long MISSING = -1L;
+
+    // ARGV: ttl (ms), versão esperada ("" = sem compare-and-set, "nil" = sem versão), versão nova, pares campo/valor
+    private static final RedisScript<Long> VERSIONED_SET_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              local stored = tonumber(redis.call('HGET', KEYS[1], 'version'))
+              if ARGV[2] ~= '' then
+                if tostring(stored) ~= ARGV[2] then return 0 end
+              elseif stored ~= nil and ARGV[3] ~= '' and stored > tonumber(ARGV[3]) then
+                return 0
+              end
+            end
+            redis.call('DEL', KEYS[1])
+            for i = 4, #ARGV, 200 do
+              redis.call('HSET', KEYS[1], unpack(ARGV, i, math.min(i + 199, #ARGV)))
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // KEYS: carrinho, stream, marcador de pendência. ARGV: ttl (ms), versão esperada ("nil" = sem versão), versão
+    // nova, quantidade n de argumentos da entrada do stream, os n argumentos (pares campo/valor), pares do hash
+    private static final RedisScript<String> JOURNALED_SET_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              if tostring(tonumber(redis.call('HGET', KEYS[1], 'version'))) ~= ARGV[2] then return '' end
+            elseif redis.call('EXISTS', KEYS[3]) == 1 then
+              return ''
+            end
+            local first = 5 + tonumber(ARGV[4])
+            redis.call('DEL', KEYS[1])
+            for i = first, #ARGV, 200 do
+              redis.call('HSET', KEYS[1], unpack(ARGV, i, math.min(i + 199, #ARGV)))
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            redis.call('SET', KEYS[3], ARGV[3])
+            return redis.call('XADD', KEYS[2], '*', unpack(ARGV, 5, first - 1))
+            """, String.class);
+
+    // Prefixo comum das operações por campo. ARGV[1]: versão esperada, ARGV[2]: versão nova, ARGV[3]: updatedAt
+    private static final String FIELD_UPDATE_PRELUDE = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end
+            if redis.call('HGET', KEYS[1], 'version') ~= ARGV[1] then return 0 end
+            if redis.call('HGET', KEYS[1], 'status') ~= 'ACTIVE' then return 0 end
+            """;
+
+    // ARGV[4..]: grupos de id, item, quantidade, preço unitário
+    private static final RedisScript<Long> ADD_ITEMS_SCRIPT = RedisScript.of(FIELD_UPDATE_PRELUDE + """
+            local delta = 0
+            for i = 4, #ARGV, 4 do
+              local id = ARGV[i]
+              local seq = redis.call('HINCRBY', KEYS[1], 'itemSeq', 1)
+              redis.call('HSET', KEYS[1], 'item:' .. id, ARGV[i + 1], 'qty:' .. id, ARGV[i + 2],
+                'price:' .. id, ARGV[i + 3], 'pos:' .. id, seq)
+              delta = delta + tonumber(ARGV[i + 2]) * tonumber(ARGV[i + 3])
+            end
+            redis.call('HINCRBY', KEYS[1], 'totalUnits', string.format('%.0f', delta))
+            redis.call('HSET', KEYS[1], 'version', ARGV[2], 'updatedAt', ARGV[3])
+            return 1
+            """, Long.class);
+
+    // ARGV[4]: quantidade nova, ARGV[5..]: ids dos itens
+    private static final RedisScript<Long> SET_QUANTITY_SCRIPT = RedisScript.of(FIELD_UPDATE_PRELUDE + """
+            local delta = 0
+            for i = 5, #ARGV do
+              local price = tonumber(redis.call('HGET', KEYS[1], 'price:' .. ARGV[i]))
+              local current = tonumber(redis.call('HGET', KEYS[1], 'qty:' .. ARGV[i]))
+              if price == nil or current == nil then return 0 end
+              delta = delta + (tonumber(ARGV[4]) - current) * price
+            end
+            for i = 5, #ARGV do
+              redis.call('HSET', KEYS[1], 'qty:' .. ARGV[i], ARGV[4])
+            end
+            redis.call('HINCRBY', KEYS[1], 'totalUnits', string.format('%.0f', delta))
+            redis.call('HSET', KEYS[1], 'version', ARGV[2], 'updatedAt', ARGV[3])
+            return 1
+            """, Long.class);
+
+    // ARGV[4]: código, ARGV[5]: desconto informado, ARGV[6]: desconto efetivo em unidades
+    private static final RedisScript<Long> APPLY_PROMO_SCRIPT = RedisScript.of(FIELD_UPDATE_PRELUDE + """
+            local previous = tonumber(redis.call('HGET', KEYS[1], 'discountUnits') or '0')
+            redis.call('HINCRBY', KEYS[1], 'totalUnits', string.format('%.0f', previous - tonumber(ARGV[6])))
+            redis.call('HSET', KEYS[1], 'promoCode', ARGV[4], 'discountAmount', ARGV[5], 'discountUnits', ARGV[6],
+              'version', ARGV[2], 'updatedAt', ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final CartRedisIndexes indexes;
+    private final ObjectMapper objectMapper;
+
+    public HashCartRedisRepository(ReactiveStringRedisTemplate redisTemplate,
+                                   CartRedisIndexes indexes,
+                                   ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.indexes = indexes;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Cart> save(Cart cart) {
+        return versionedSet(cart, NO_EXPECTED_VERSION)
+                .filter(Boolean::booleanValue)
+                .flatMap(written -> indexes.update(cart, CACHE_TTL).thenReturn(cart));
+    }
+
+    @Override
+    public Mono<Boolean> compareAndSet(Cart cart, Long expectedVersion) {
+        return versionedSet(cart, expectedVersion == null ? "nil" : expectedVersion.toString())
+                .flatMap(written -> written ? indexes.update(cart, CACHE_TTL).thenReturn(true) : Mono.just(false));
+    }
+
+    @Override
+    public Mono<String> compareAndSetJournaled(Cart cart, Long expectedVersion, WriteJournal journal) {
+        return Mono.fromCallable(() -> {
+                    List<String> args = new ArrayList<>();
+                    args.add(String.valueOf(CACHE_TTL.toMillis()));
+                    args.add(expectedVersion == null ? "nil" : expectedVersion.toString());
+                    args.add(String.valueOf(cart.getVersion()));
+                    args.add(String.valueOf(journal.fields().size() * 2));
+                    journal.fields().forEach((field, value) -> {
+                        args.add(field);
+                        args.add(value);
+                    });
+                    toFields(cart).forEach((field, value) -> {
+                        args.add(field);
+                        args.add(value);
+                    });
+                    return args;
+                })
+                .flatMap(args -> redisTemplate.execute(JOURNALED_SET_SCRIPT,
+                                List.of(KEY_PREFIX + cart.getId(), journal.streamKey(), journal.pendingKey()), args)
+                        .next())
+                .filter(recordId -> !recordId.isEmpty())
+                .flatMap(recordId -> indexes.update(cart, CACHE_TTL).thenReturn(recordId));
+    }
+
+    @Override
+    public Mono<Cart> findById(String id) {
+        return redisTemplate.<String, String>opsForHash().entries(KEY_PREFIX + id)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .filter(fields -> !fields.isEmpty())
+                .map(this::fromFields);
+    }
+
+    // Leitura de um único campo, sem desserializar o carrinho
+    @Override
+    public Mono<CartStatus> findStatus(String id) {
+        return redisTemplate.<String, String>opsForHash().get(KEY_PREFIX + id, "status")
+                .map(CartStatus::valueOf);
+    }
+
+    @Override
+    public Mono<Duration> remainingTtl(String id) {
+        return redisTemplate.getExpire(KEY_PREFIX + id);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(String id) {
+        return findById(id)
+                .flatMap(indexes::remove)
+                .then(redisTemplate.delete(KEY_PREFIX + id))
+                .map(deleted -> deleted > 0);
+    }
+
+    @Override
+    public Mono<Long> deleteByIds(List<String> ids) {
+        String[] keys = ids.stream().map(id -> KEY_PREFIX + id).toArray(String[]::new);
+        return Mono.zip(redisTemplate.delete(keys), indexes.removeFromActive(ids))
+                .map(result -> result.getT1());
+    }
+
+    @Override
+    public Flux<Cart> findByUserId(String userId) {
+        String indexKey = CartRedisIndexes.USER_INDEX_PREFIX + userId;
+        return indexes.byUser(userId)
+                .concatMap(ids -> multiGet(indexKey, ids));
+    }
+
+    @Override
+    public Flux<Cart> findByStatus(String status) {
+        String indexKey = CartRedisIndexes.STATUS_INDEX_PREFIX + status;
+        return indexes.byStatus(status)
+                .concatMap(ids -> multiGet(indexKey, ids));
+    }
+
+    @Override
+    public Flux<Cart> findByUserIdAndStatus(String userId, String status) {
+        String userIndexKey = CartRedisIndexes.USER_INDEX_PREFIX + userId;
+        return indexes.byUserAndStatus(userId, status)
+                .concatMap(ids -> multiGet(userIndexKey, ids))
+                .filter(cart -> cart.getStatus() != null && cart.getStatus().toString().equals(status));
+    }
+
+    @Override
+    public Mono<Cart> addItems(Cart cart, List<CartItem> items) {
+        List<String> args = fieldUpdateArgs(cart);
+        for (CartItem item : items) {
+            args.add(item.getId());
+            args.add(toJson(item));
+            args.add(String.valueOf(item.getQuantity()));
+            args.add(toUnits(item.getUnitPrice()));
+        }
+        return fieldUpdate(cart, ADD_ITEMS_SCRIPT, args);
+    }
+
+    @Override
+    public Mono<Cart> setItemQuantity(Cart cart, List<String> itemIds, int quantity) {
+        List<String> args = fieldUpdateArgs(cart);
+        args.add(String.valueOf(quantity));
+        args.addAll(itemIds);
+        return fieldUpdate(cart, SET_QUANTITY_SCRIPT, args);
+    }
+
+    @Override
+    public Mono<Cart> applyPromoCode(Cart cart) {
+        List<String> args = fieldUpdateArgs(cart);
+        args.add(cart.getPromoCode() == null ? "" : cart.getPromoCode());
+        args.add(cart.getDiscountAmount() == null ? "" : cart.getDiscountAmount().toPlainString());
+        args.add(toUnits(effectiveDiscount(cart.getDiscountAmount())));
+        return fieldUpdate(cart, APPLY_PROMO_SCRIPT, args);
+    }
+
+    // A operação por campo só vale se o Redis estiver exatamente na versão anterior; caso contrário
+    // (ou se a chave não existir) o carrinho é regravado inteiro, com a mesma regra de versão do save
+    private Mono<Cart> fieldUpdate(Cart cart, RedisScript<Long> script, List<String> args) {
+        if (cart.getVersion() == null) {
+            return save(cart);
+        }
+        return redisTemplate.execute(script, List.of(KEY_PREFIX + cart.getId()), args)
+                .next()
+                .flatMap(result -> {
+                    if (result == APPLIED) {
+                        return Mono.just(cart);
+                    }
+                    if (result != MISSING) {
+                        log.debug("Carrinho {} fora da versão {} no Redis; regravando o hash inteiro", cart.getId(), cart.getVersion() - 1);
+                    }
+                    return save(cart);
+                });
+    }
+
+    private List<String> fieldUpdateArgs(Cart cart) {
+        List<String> args = new ArrayList<>();
+        args.add(cart.getVersion() == null ? "" : String.valueOf(cart.getVersion() - 1));
+        args.add(cart.getVersion() == null ? "" : cart.getVersion().toString());
+        args.add(toText(cart.getUpdatedAt()));
+        return args;
+    }
+
+    private Mono<Boolean> versionedSet(Cart cart, String expectedVersion) {
+        return Mono.fromCallable(() -> {
+                    List<String> args = new ArrayList<>();
+                    args.add(String.valueOf(CACHE_TTL.toMillis()));
+                    args.add(expectedVersion);
+                    args.add(cart.getVersion() == null ? "" : cart.getVersion().toString());
+                    toFields(cart).forEach((field, value) -> {
+                        args.add(field);
+                        args.add(value);
+                    });
+                    return args;
+                })
+                .flatMap(args -> redisTemplate.execute(VERSIONED_SET_SCRIPT, List.of(KEY_PREFIX + cart.getId()), args)
+                        .next())
+                .map(result -> result == APPLIED);
+    }
+
+    private Map<String, String> toFields(Cart cart) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        putIfPresent(fields, "id", cart.getId());
+        putIfPresent(fields, "userId", cart.getUserId());
+        putIfPresent(fields, "description", cart.getDescription());
+        putIfPresent(fields, "status", cart.getStatus() == null ? null : cart.getStatus().name());
+        putIfPresent(fields, "promoCode", cart.getPromoCode());
+        putIfPresent(fields, "discountAmount", cart.getDiscountAmount() == null ? null : cart.getDiscountAmount().toPlainString());
+        putIfPresent(fields, "createdAt", toText(cart.getCreatedAt()));
+        putIfPresent(fields, "updatedAt", toText(cart.getUpdatedAt()));
+        putIfPresent(fields, "completedAt", toText(cart.getCompletedAt()));
+        putIfPresent(fields, "version", cart.getVersion() == null ? null : cart.getVersion().toString());
+        fields.put(DISCOUNT_UNITS, toUnits(effectiveDiscount(cart.getDiscountAmount())));
+        if (cart.getTotalAmount() != null) {
+            fields.put(TOTAL_UNITS, toUnits(cart.getTotalAmount()));
+        }
+        List<CartItem> items = cart.getItems() == null ? List.of() : cart.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            CartItem item = items.get(i);
+            fields.put(ITEM + item.getId(), toJson(item));
+            fields.put(QUANTITY + item.getId(), String.valueOf(item.getQuantity()));
+            fields.put(PRICE + item.getId(), toUnits(item.getUnitPrice()));
+            fields.put(POSITION + item.getId(), String.valueOf(i + 1));
+        }
+        fields.put(ITEM_SEQUENCE, String.valueOf(items.size()));
+        return fields;
+    }
+
+    private Cart fromFields(Map<String, String> fields) {
+        List<CartItem> items = new ArrayList<>();
+        fields.forEach((field, value) -> {
+            if (field.startsWith(ITEM)) {
+                String itemId = field.substring(ITEM.length());
+                CartItem item = fromJson(value);
+                item.setQuantity(Integer.parseInt(fields.get(QUANTITY + itemId)));
+                items.add(item);
+            }
+        });
+        items.sort(Comparator.comparingLong((CartItem item) -> Long.parseLong(fields.getOrDefault(POSITION + item.getId(), "0"))));
+
+        String discountAmount = fields.get("discountAmount");
+        String totalUnits = fields.get(TOTAL_UNITS);
+        return Cart.builder()
+                .id(fields.get("id"))
+                .userId(fields.get("userId"))
+                .description(fields.get("description"))
+                .status(fields.containsKey("status") ? CartStatus.valueOf(fields.get("status")) : null)
+                .promoCode(emptyToNull(fields.get("promoCode")))
+                .discountAmount(discountAmount == null || discountAmount.isEmpty() ? null : new BigDecimal(discountAmount))
+                .createdAt(toDateTime(fields.get("createdAt")))
+                .updatedAt(toDateTime(fields.get("updatedAt")))
+                .completedAt(toDateTime(fields.get("completedAt")))
+                .version(fields.containsKey("version") ? Long.valueOf(fields.get("version")) : null)
+                .totalAmount(totalUnits == null ? null : fromUnits(totalUnits))
+                .items(items)
+                .build();
+    }
+
+    private Flux<Cart> multiGet(String indexKey, List<String> ids) {
+        // As leituras são emitidas em paralelo na mesma conexão (pipeline do Lettuce), mantendo a ordem dos ids
+        return Flux.fromIterable(ids)
+                .flatMapSequential(id -> findById(id)
+                        .map(cart -> new CartLookup(id, cart))
+                        .defaultIfEmpty(new CartLookup(id, null)))
+                .collectList()
+                .flatMapMany(lookups -> indexes.removeExpired(indexKey, lookups.stream()
+                                .filter(lookup -> lookup.cart() == null)
+                                .map(CartLookup::id)
+                                .toList())
+                        .thenMany(Flux.fromIterable(lookups)
+                                .filter(lookup -> lookup.cart() != null)
+                                .map(CartLookup::cart)));
+    }
+
+    private String toJson(CartItem item) {
+        try {
+            return objectMapper.writeValueAsString(item);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao serializar item " + item.getId(), e);
+        }
+    }
+
+    private CartItem fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, CartItem.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao desserializar item do carrinho", e);
+        }
+    }
+
+    // Valores com mais de 4 casas decimais são arredondados apenas na cópia do Redis
+    private static String toUnits(BigDecimal amount) {
+        return amount == null ? "0" : amount.setScale(MONEY_SCALE, RoundingMode.HALF_EVEN).unscaledValue().toString();
+    }
+
+    private static BigDecimal fromUnits(String units) {
+        BigDecimal amount = new BigDecimal(units).movePointLeft(MONEY_SCALE).stripTrailingZeros();
+        return amount.scale() < 2 ? amount.setScale(2) : amount;
+    }
+
+    private static BigDecimal effectiveDiscount(BigDecimal discount) {
+        return discount != null && discount.compareTo(BigDecimal.ZERO) > 0 ? discount : BigDecimal.ZERO;
+    }
+
+    private static void putIfPresent(Map<String, String> fields, String field, String value) {
+        if (value != null) {
+            fields.put(field, value);
+        }
+    }
+
+    private static String toText(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toString();
+    }
+
+    private static LocalDateTime toDateTime(String text) {
+        return text == null || text.isEmpty() ? null : LocalDateTime.parse(text);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private record CartLookup(String id, Cart cart) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.webflux.micromerce.cart.infrastructure.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Registros de Idempotency-Key: reservados com SET NX enquanto a requisição executa e sobrescritos com a
+// resposta ao final. O conteúdo (JSON) é definido pelo IdempotencyService.
+@Component
+@RequiredArgsConstructor
+public class IdempotencyStore {
+
+    private static final String KEY_PREFIX = "idempotency:";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public Mono<Boolean> reserve(String key, String value, Duration ttl) {
+        return redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + key, value, ttl);
+    }
+
+    public Mono<String> get(String key) {
+        return redisTemplate.opsForValue().get(KEY_PREFIX + key);
+    }
+
+    public Mono<Boolean> complete(String key, String value, Duration ttl) {
+        return redisTemplate.opsForValue().set(KEY_PREFIX + key, value, ttl);
+    }
+
+    public Mono<Boolean> release(String key) {
+        return redisTemplate.opsForValue().delete(KEY_PREFIX + key);
+    }
+}
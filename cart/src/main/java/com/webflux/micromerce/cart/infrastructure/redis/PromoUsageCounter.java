@@ -0,0 +1,71 @@
+package com.webflux.micromerce.cart.infrastructure.redis;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+// Contagem de uso dos códigos promocionais com INCR. Uma marca por carrinho garante que reaplicar o mesmo
+// código (ou repetir a operação após um conflito de versão) não conte o uso duas vezes.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PromoUsageCounter {
+
+    private static final String COUNT_PREFIX = "promo-usage:";
+    private static final String CART_MARK_INFIX = ":cart:";
+
+    public static final long RESERVED = 1L;
+    public static final long ALREADY_RESERVED = 2L;
+    public static final long LIMIT_REACHED = 0L;
+
+    // KEYS: contador, marca do carrinho. ARGV: limite, ttl da marca (ms)
+    private static final RedisScript<Long> RESERVE_SCRIPT = RedisScript.of("""
+            if redis.call('SET', KEYS[2], '1', 'NX', 'PX', ARGV[2]) == false then return 2 end
+            if redis.call('INCR', KEYS[1]) > tonumber(ARGV[1]) then
+              redis.call('DECR', KEYS[1])
+              redis.call('DEL', KEYS[2])
+              return 0
+            end
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of("""
+            if redis.call('DEL', KEYS[2]) == 1 then
+              redis.call('DECR', KEYS[1])
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public Mono<Long> reserve(String code, String cartId, long limit, Duration markTtl) {
+        return redisTemplate.execute(RESERVE_SCRIPT, keys(code, cartId),
+                        List.of(String.valueOf(limit), String.valueOf(markTtl.toMillis())))
+                .next();
+    }
+
+    public Mono<Void> release(String code, String cartId) {
+        return redisTemplate.execute(RELEASE_SCRIPT, keys(code, cartId), List.of())
+                .next()
+                .doOnError(error -> log.error("Erro ao liberar uso do código {} pelo carrinho {}: {}", code, cartId, error.getMessage()))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    public Mono<Long> count(String code) {
+        return redisTemplate.opsForValue().get(COUNT_PREFIX + code)
+                .map(Long::valueOf)
+                .defaultIfEmpty(0L);
+    }
+
+    private static List<String> keys(String code, String cartId) {
+        return List.of(COUNT_PREFIX + code, COUNT_PREFIX + code + CART_MARK_INFIX + cartId);
+    }
+}
@@ -0,0 +1,45 @@
+package com.webflux.micromerce.cart.infrastructure.redis;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+// Lock distribuído simples (SET NX PX) para tarefas que devem rodar em um único nó
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisLockService {
+
+    private static final String LOCK_PREFIX = "lock:";
+    // Só remove o lock se ele ainda pertencer a quem o obteve
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    // Retorna o token do lock, ou vazio quando outro nó já o detém
+    public Mono<String> tryAcquire(String name, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        return redisTemplate.opsForValue()
+                .setIfAbsent(LOCK_PREFIX + name, token, ttl)
+                .filter(Boolean::booleanValue)
+                .map(acquired -> token)
+                .doOnNext(acquired -> log.debug("Lock {} obtido", name));
+    }
+
+    public Mono<Boolean> release(String name, String token) {
+        return redisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_PREFIX + name), List.of(token))
+                .next()
+                .map(result -> result == 1L)
+                .doOnError(error -> log.error("Erro ao liberar o lock {}: {}", name, error.getMessage()))
+                .onErrorReturn(false);
+    }
+}
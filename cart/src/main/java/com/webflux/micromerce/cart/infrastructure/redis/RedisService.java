@@ -1,6 +1,9 @@
 package com.webflux.micromerce.cart.infrastructure.redis;
 
 import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.infrastructure.cache.CartNearCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -9,6 +12,7 @@ import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.List;
 
 @Slf4j
 @Service
@@ -16,33 +20,112 @@ import java.time.Duration;
 public class RedisService {
 
     private final CartRedisRepository redisRepository;
+    private final CartNearCache nearCache;
 
     public Mono<Cart> getCart(String cartId) {
-        return redisRepository.findById(cartId)
-                .doOnNext(cart -> log.debug("Carrinho {} encontrado em Redis", cartId))
+        return getCachedCart(cartId)
+                .map(CachedCart::cart);
+    }
+
+    // Na leitura do Redis o TTL restante é consultado junto (os dois comandos seguem em pipeline);
+    // em acertos do cache local o TTL é nulo
+    public Mono<CachedCart> getCachedCart(String cartId) {
+        return nearCache.get(cartId)
+                .doOnNext(cart -> log.debug("Carrinho {} encontrado no cache local", cartId))
+                .map(cart -> new CachedCart(cart, null))
+                .switchIfEmpty(Mono.defer(() -> Mono.zip(redisRepository.findById(cartId),
+                                redisRepository.remainingTtl(cartId).defaultIfEmpty(Duration.ZERO))
+                        .map(result -> new CachedCart(result.getT1(), result.getT2()))
+                        .doOnNext(entry -> {
+                            log.debug("Carrinho {} encontrado em Redis", cartId);
+                            nearCache.put(entry.cart());
+                        })))
                 .doOnError(error -> log.error("Erro ao recuperar carrinho {} do Redis: {}", cartId, error.getMessage()));
     }
 
     public Mono<Boolean> setCart(Cart cart) {
-        return redisRepository.save(cart)
-                .map(savedCart -> true)
+        return write(cart, redisRepository.save(cart));
+    }
+
+    // As três operações abaixo gravam só a alteração quando o layout em hash está ativo
+    public Mono<Boolean> cacheItemsAdded(Cart cart, List<CartItem> items) {
+        return write(cart, redisRepository.addItems(cart, items));
+    }
+
+    public Mono<Boolean> cacheItemQuantity(Cart cart, List<String> itemIds, int quantity) {
+        return write(cart, redisRepository.setItemQuantity(cart, itemIds, quantity));
+    }
+
+    public Mono<Boolean> cachePromoCode(Cart cart) {
+        return write(cart, redisRepository.applyPromoCode(cart));
+    }
+
+    public Mono<CartStatus> getCartStatus(String cartId) {
+        return nearCache.get(cartId)
+                .mapNotNull(Cart::getStatus)
+                .switchIfEmpty(Mono.defer(() -> redisRepository.findStatus(cartId)))
+                .doOnError(error -> log.error("Erro ao recuperar status do carrinho {} do Redis: {}", cartId, error.getMessage()));
+    }
+
+    private Mono<Boolean> write(Cart cart, Mono<Cart> redisWrite) {
+        return redisWrite
+                .flatMap(savedCart -> nearCache.replace(savedCart).thenReturn(true))
+                .switchIfEmpty(Mono.defer(() -> {
+                    // Outra escrita já gravou uma versão mais nova; a cópia local é descartada
+                    log.debug("Carrinho {} versão {} ignorado: Redis já possui versão mais nova", cart.getId(), cart.getVersion());
+                    return nearCache.invalidate(cart.getId()).thenReturn(true);
+                }))
                 .doOnNext(result -> log.debug("Carrinho {} salvo em Redis", cart.getId()))
                 .doOnError(error -> log.error("Erro ao salvar carrinho {} para Redis: {}", cart.getId(), error.getMessage()))
                 .retryWhen(Retry.backoff(3, Duration.ofMillis(100)))
                 .onErrorReturn(false);
     }
 
+    public Mono<Boolean> compareAndSetCart(Cart cart, Long expectedVersion) {
+        return redisRepository.compareAndSet(cart, expectedVersion)
+                .flatMap(written -> (written ? nearCache.replace(cart) : nearCache.invalidate(cart.getId()))
+                        .thenReturn(written))
+                .doOnError(error -> log.error("Erro ao gravar carrinho {} com compare-and-set no Redis: {}", cart.getId(), error.getMessage()));
+    }
+
+    // Variante do modo write-behind: retorna o id da entrada registrada no stream, ou vazio quando recusada
+    public Mono<String> compareAndSetCart(Cart cart, Long expectedVersion, WriteJournal journal) {
+        return redisRepository.compareAndSetJournaled(cart, expectedVersion, journal)
+                .flatMap(recordId -> nearCache.replace(cart).thenReturn(recordId))
+                .switchIfEmpty(Mono.defer(() -> nearCache.invalidate(cart.getId()).then(Mono.empty())))
+                .doOnError(error -> log.error("Erro ao gravar carrinho {} com compare-and-set no Redis: {}", cart.getId(), error.getMessage()));
+    }
+
+    // A invalidação local (e o aviso às outras instâncias) vem depois do DEL: feita antes, outra instância
+    // poderia reler do Redis o carrinho ainda presente e recolocá-lo no cache local
     public Mono<Boolean> deleteCart(String cartId) {
         return redisRepository.deleteById(cartId)
+                .flatMap(result -> nearCache.invalidate(cartId).thenReturn(result))
                 .doOnNext(result -> log.debug("Carrinho {} excluído do Redis", cartId))
                 .doOnError(error -> log.error("Erro ao excluir carrinho {} do Redis: {}", cartId, error.getMessage()))
                 .retryWhen(Retry.backoff(3, Duration.ofMillis(100)))
                 .onErrorReturn(false);
     }
 
+    public Mono<Long> deleteCarts(List<String> cartIds) {
+        if (cartIds.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return redisRepository.deleteByIds(cartIds)
+                .flatMap(deleted -> Flux.fromIterable(cartIds)
+                        .flatMap(nearCache::invalidate)
+                        .then(Mono.just(deleted)))
+                .doOnNext(deleted -> log.debug("{} carrinhos excluídos do Redis", deleted))
+                .doOnError(error -> log.error("Erro ao excluir {} carrinhos do Redis: {}", cartIds.size(), error.getMessage()))
+                .onErrorReturn(0L);
+    }
+
     public Flux<Cart> getUserCarts(String userId) {
         return redisRepository.findByUserId(userId)
                 .doOnComplete(() -> log.debug("Carrinhos recuperados para o usuário {} do Redis", userId))
                 .doOnError(error -> log.error("Erro ao recuperar carrinhos para o usuário {} do Redis: {}", userId, error.getMessage()));
     }
+
+    public record CachedCart(Cart cart, Duration remainingTtl) {
+    }
 }
@@ -0,0 +1,46 @@
+package com.webflux.micromerce.cart.infrastructure.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Limite compartilhado entre as instâncias: janela deslizante em um sorted set por chave, com o relógio do
+// próprio Redis (TIME) para não depender do horário de cada instância.
+@Component
+@RequiredArgsConstructor
+public class SlidingWindowRateLimiter {
+
+    private static final String KEY_PREFIX = "rate-limit:";
+
+    // KEYS: janela. ARGV: limite, duração da janela (ms), membro único. Retorna 0 ou a espera (ms) até liberar
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = RedisScript.of("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local window = tonumber(ARGV[2])
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+            if redis.call('ZCARD', KEYS[1]) < tonumber(ARGV[1]) then
+              redis.call('ZADD', KEYS[1], now, ARGV[3])
+              redis.call('PEXPIRE', KEYS[1], window)
+              return 0
+            end
+            local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+            return math.max(1, tonumber(oldest[2]) + window - now)
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    // Duration.ZERO quando a requisição foi admitida; caso contrário, quanto esperar antes de tentar de novo
+    public Mono<Duration> tryAcquire(String key, long limit, Duration window) {
+        String member = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return redisTemplate.execute(ACQUIRE_SCRIPT, List.of(KEY_PREFIX + key),
+                        List.of(String.valueOf(limit), String.valueOf(window.toMillis()), member))
+                .next()
+                .map(Duration::ofMillis);
+    }
+}
@@ -0,0 +1,216 @@
+package com.webflux.micromerce.cart.infrastructure.redis;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.infrastructure.serialization.CompactCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "cart.redis.layout", havingValue = "value", matchIfMissing = true)
+public class ValueCartRedisRepository implements CartRedisRepository {
+
+    private static final String KEY_PREFIX = "cart:";
+    private static final String VERSION_KEY_PREFIX = "cart-version:";
+    private static final Duration CACHE_TTL = Duration.ofHours(24);
+    private static final String NO_EXPECTED_VERSION = "";
+
+    // KEYS: carrinho, versão. ARGV: carrinho serializado, ttl (ms), versão esperada ("" = sem compare-and-set,
+    // "nil" = sem versão), versão nova. Sem compare-and-set a escrita só é recusada se o Redis já tiver uma
+    // versão mais nova do carrinho. A versão fica em chave própria porque o valor pode estar em formato binário;
+    // entradas antigas, em JSON e sem essa chave, têm a versão lida do próprio valor.
+    private static final RedisScript<Long> VERSIONED_SET_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              local stored = tonumber(redis.call('GET', KEYS[2]))
+              if stored == nil then
+                local ok, decoded = pcall(cjson.decode, redis.call('GET', KEYS[1]))
+                if ok and type(decoded) == 'table' and type(decoded['version']) == 'number' then
+                  stored = decoded['version']
+                end
+              end
+              if ARGV[3] ~= '' then
+                if tostring(stored) ~= ARGV[3] then return 0 end
+              elseif stored ~= nil and ARGV[4] ~= '' and stored > tonumber(ARGV[4]) then
+                return 0
+              end
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            if ARGV[4] ~= '' then
+              redis.call('SET', KEYS[2], ARGV[4], 'PX', ARGV[2])
+            else
+              redis.call('DEL', KEYS[2])
+            end
+            return 1
+            """, Long.class);
+    // KEYS: carrinho, versão, stream, marcador de pendência. ARGV: carrinho serializado, ttl (ms), versão esperada
+    // ("nil" = sem versão), versão nova, pares campo/valor da entrada do stream
+    private static final RedisScript<String> JOURNALED_SET_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              local stored = tonumber(redis.call('GET', KEYS[2]))
+              if stored == nil then
+                local ok, decoded = pcall(cjson.decode, redis.call('GET', KEYS[1]))
+                if ok and type(decoded) == 'table' and type(decoded['version']) == 'number' then
+                  stored = decoded['version']
+                end
+              end
+              if tostring(stored) ~= ARGV[3] then return '' end
+            elseif redis.call('EXISTS', KEYS[4]) == 1 then
+              return ''
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            redis.call('SET', KEYS[2], ARGV[4], 'PX', ARGV[2])
+            redis.call('SET', KEYS[4], ARGV[4])
+            return redis.call('XADD', KEYS[3], '*', unpack(ARGV, 5))
+            """, String.class);
+    private static final RedisElementWriter<byte[]> SCRIPT_ARGS_WRITER = RedisElementWriter.from(RedisSerializer.byteArray());
+    private static final RedisElementReader<Long> SCRIPT_RESULT_READER = RedisElementReader.from(new GenericToStringSerializer<>(Long.class));
+    private static final RedisElementReader<String> JOURNAL_RESULT_READER = RedisElementReader.from(RedisSerializer.string());
+
+    private final ReactiveRedisTemplate<String, Cart> cartTemplate;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final CartRedisIndexes indexes;
+    private final CompactCodec codec;
+
+    public ValueCartRedisRepository(ReactiveRedisTemplate<String, Cart> cartTemplate,
+                                    ReactiveStringRedisTemplate redisTemplate,
+                                    CartRedisIndexes indexes,
+                                    @Qualifier("redisCartCodec") CompactCodec codec) {
+        this.cartTemplate = cartTemplate;
+        this.redisTemplate = redisTemplate;
+        this.indexes = indexes;
+        this.codec = codec;
+    }
+
+    @Override
+    public Mono<Cart> save(Cart cart) {
+        return versionedSet(cart, NO_EXPECTED_VERSION)
+                .filter(Boolean::booleanValue)
+                .flatMap(written -> indexes.update(cart, CACHE_TTL).thenReturn(cart));
+    }
+
+    @Override
+    public Mono<Boolean> compareAndSet(Cart cart, Long expectedVersion) {
+        return versionedSet(cart, expectedVersion == null ? "nil" : expectedVersion.toString())
+                .flatMap(written -> written ? indexes.update(cart, CACHE_TTL).thenReturn(true) : Mono.just(false));
+    }
+
+    @Override
+    public Mono<String> compareAndSetJournaled(Cart cart, Long expectedVersion, WriteJournal journal) {
+        return Mono.fromCallable(() -> {
+                    List<byte[]> args = new ArrayList<>();
+                    args.add(codec.encode(cart));
+                    args.add(bytes(String.valueOf(CACHE_TTL.toMillis())));
+                    args.add(bytes(expectedVersion == null ? "nil" : expectedVersion.toString()));
+                    args.add(bytes(String.valueOf(cart.getVersion())));
+                    journal.fields().forEach((field, value) -> {
+                        args.add(bytes(field));
+                        args.add(bytes(value));
+                    });
+                    return args;
+                })
+                .flatMap(args -> redisTemplate.execute(JOURNALED_SET_SCRIPT,
+                                List.of(KEY_PREFIX + cart.getId(), VERSION_KEY_PREFIX + cart.getId(), journal.streamKey(), journal.pendingKey()),
+                                args, SCRIPT_ARGS_WRITER, JOURNAL_RESULT_READER)
+                        .next())
+                .filter(recordId -> !recordId.isEmpty())
+                .flatMap(recordId -> indexes.update(cart, CACHE_TTL).thenReturn(recordId));
+    }
+
+    @Override
+    public Mono<Cart> findById(String id) {
+        String key = KEY_PREFIX + id;
+        return cartTemplate.opsForValue().get(key);
+    }
+
+    @Override
+    public Mono<Duration> remainingTtl(String id) {
+        return cartTemplate.getExpire(KEY_PREFIX + id);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(String id) {
+        String key = KEY_PREFIX + id;
+        return findById(id)
+                .flatMap(indexes::remove)
+                .then(cartTemplate.delete(key, VERSION_KEY_PREFIX + id))
+                .map(deleted -> deleted > 0);
+    }
+
+    // Um único DEL com várias chaves
+    @Override
+    public Mono<Long> deleteByIds(List<String> ids) {
+        String[] keys = ids.stream().map(id -> KEY_PREFIX + id).toArray(String[]::new);
+        String[] versionKeys = ids.stream().map(id -> VERSION_KEY_PREFIX + id).toArray(String[]::new);
+        return Mono.zip(cartTemplate.delete(keys), redisTemplate.delete(versionKeys), indexes.removeFromActive(ids))
+                .map(result -> result.getT1());
+    }
+
+    @Override
+    public Flux<Cart> findByUserId(String userId) {
+        String indexKey = CartRedisIndexes.USER_INDEX_PREFIX + userId;
+        return indexes.byUser(userId)
+                .concatMap(ids -> multiGet(indexKey, ids));
+    }
+
+    @Override
+    public Flux<Cart> findByStatus(String status) {
+        String indexKey = CartRedisIndexes.STATUS_INDEX_PREFIX + status;
+        return indexes.byStatus(status)
+                .concatMap(ids -> multiGet(indexKey, ids));
+    }
+
+    @Override
+    public Flux<Cart> findByUserIdAndStatus(String userId, String status) {
+        String userIndexKey = CartRedisIndexes.USER_INDEX_PREFIX + userId;
+        return indexes.byUserAndStatus(userId, status)
+                .concatMap(ids -> multiGet(userIndexKey, ids))
+                .filter(cart -> cart.getStatus() != null && cart.getStatus().toString().equals(status));
+    }
+
+    private Mono<Boolean> versionedSet(Cart cart, String expectedVersion) {
+        String newVersion = cart.getVersion() == null ? "" : cart.getVersion().toString();
+        return Mono.fromCallable(() -> codec.encode(cart))
+                .flatMap(value -> redisTemplate.execute(VERSIONED_SET_SCRIPT,
+                                List.of(KEY_PREFIX + cart.getId(), VERSION_KEY_PREFIX + cart.getId()),
+                                List.of(value, bytes(String.valueOf(CACHE_TTL.toMillis())), bytes(expectedVersion), bytes(newVersion)),
+                                SCRIPT_ARGS_WRITER, SCRIPT_RESULT_READER)
+                        .next())
+                .map(result -> result == 1L);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Flux<Cart> multiGet(String indexKey, List<String> ids) {
+        List<String> keys = ids.stream().map(id -> KEY_PREFIX + id).toList();
+        return cartTemplate.opsForValue().multiGet(keys)
+                .flatMapMany(carts -> {
+                    List<String> expiredIds = new ArrayList<>();
+                    for (int i = 0; i < carts.size(); i++) {
+                        if (carts.get(i) == null) {
+                            expiredIds.add(ids.get(i));
+                        }
+                    }
+                    return indexes.removeExpired(indexKey, expiredIds)
+                            .thenMany(Flux.fromIterable(carts).filter(Objects::nonNull));
+                });
+    }
+}
@@ -0,0 +1,9 @@
+package com.webflux.micromerce.cart.infrastructure.redis;
+
+import java.util.Map;
+
+// Entrada do stream de escrita adiada, gravada no mesmo script que o carrinho (ver CartWriteBehindBuffer).
+// pendingKey guarda a última versão ainda não gravada no MongoDB: enquanto existir, um compare-and-set sobre
+// uma chave de carrinho ausente é recusado, porque a cópia lida do MongoDB estaria desatualizada.
+public record WriteJournal(String streamKey, String pendingKey, Map<String, String> fields) {
+}
@@ -0,0 +1,134 @@
+package com.webflux.micromerce.cart.infrastructure.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+// Codec configurável por template (Redis ou Kafka). Formatos binários e payloads comprimidos levam um
+// cabeçalho de 3 bytes [0x00, formato, compressão]; JSON sem compressão é gravado sem cabeçalho, de modo
+// que entradas antigas em JSON (que começam por '{') continuam legíveis por qualquer configuração.
+public class CompactCodec {
+
+    private static final byte MAGIC = 0x00;
+    private static final int HEADER_SIZE = 3;
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    public enum Format {
+        JSON(1, "application/json"),
+        SMILE(2, "application/x-jackson-smile"),
+        CBOR(3, "application/cbor");
+
+        private final byte id;
+        private final String contentType;
+
+        Format(int id, String contentType) {
+            this.id = (byte) id;
+            this.contentType = contentType;
+        }
+
+        static Format of(byte id) {
+            for (Format format : values()) {
+                if (format.id == id) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Formato de serialização desconhecido: " + id);
+        }
+    }
+
+    public enum Compression {
+        NONE(0),
+        LZ4(1);
+
+        private final byte id;
+
+        Compression(int id) {
+            this.id = (byte) id;
+        }
+    }
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper cborMapper;
+    private final Format format;
+    private final Compression compression;
+    private final int compressionThreshold;
+    private final LZ4Compressor compressor = LZ4.fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+
+    public CompactCodec(ObjectMapper jsonMapper, Format format, Compression compression, int compressionThreshold) {
+        this.jsonMapper = jsonMapper;
+        this.smileMapper = SmileMapper.builder().addModule(new JavaTimeModule()).build();
+        this.cborMapper = CBORMapper.builder().addModule(new JavaTimeModule()).build();
+        this.format = format;
+        this.compression = compression;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public String contentType() {
+        return format.contentType;
+    }
+
+    public byte[] encode(Object value) {
+        byte[] payload;
+        try {
+            payload = mapper(format).writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao serializar " + value.getClass().getSimpleName(), e);
+        }
+        boolean compress = compression == Compression.LZ4 && payload.length >= compressionThreshold;
+        if (format == Format.JSON && !compress) {
+            return payload;
+        }
+        if (!compress) {
+            return ByteBuffer.allocate(HEADER_SIZE + payload.length)
+                    .put(MAGIC).put(format.id).put(Compression.NONE.id)
+                    .put(payload)
+                    .array();
+        }
+        // LZ4 em bloco: o tamanho original vai antes dos dados comprimidos
+        byte[] compressed = compressor.compress(payload);
+        return ByteBuffer.allocate(HEADER_SIZE + Integer.BYTES + compressed.length)
+                .put(MAGIC).put(format.id).put(Compression.LZ4.id)
+                .putInt(payload.length)
+                .put(compressed)
+                .array();
+    }
+
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (bytes[0] != MAGIC) {
+                // JSON sem cabeçalho, inclusive entradas gravadas antes do codec
+                return jsonMapper.readValue(bytes, type);
+            }
+            ObjectMapper mapper = mapper(Format.of(bytes[1]));
+            if (bytes[2] == Compression.NONE.id) {
+                return mapper.readValue(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, type);
+            }
+            int originalLength = ByteBuffer.wrap(bytes, HEADER_SIZE, Integer.BYTES).getInt();
+            byte[] payload = decompressor.decompress(bytes, HEADER_SIZE + Integer.BYTES, originalLength);
+            return mapper.readValue(payload, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao desserializar " + type.getSimpleName(), e);
+        }
+    }
+
+    private ObjectMapper mapper(Format format) {
+        return switch (format) {
+            case JSON -> jsonMapper;
+            case SMILE -> smileMapper;
+            case CBOR -> cborMapper;
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package com.webflux.micromerce.cart.infrastructure.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// O formato vai no cabeçalho contentType para que os consumidores escolham o desserializador
+public class CompactKafkaSerializer implements Serializer<Object> {
+
+    private static final String CONTENT_TYPE_HEADER = "contentType";
+
+    private final CompactCodec codec;
+
+    public CompactKafkaSerializer(CompactCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return codec.encode(data);
+        } catch (UncheckedIOException e) {
+            throw new SerializationException(e.getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        headers.remove(CONTENT_TYPE_HEADER);
+        headers.add(CONTENT_TYPE_HEADER, codec.contentType().getBytes(StandardCharsets.UTF_8));
+        return serialize(topic, data);
+    }
+}
@@ -0,0 +1,38 @@
+package com.webflux.micromerce.cart.infrastructure.serialization;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.UncheckedIOException;
+
+public class CompactRedisSerializer<T> implements RedisSerializer<T> {
+
+    private final CompactCodec codec;
+    private final Class<T> type;
+
+    public CompactRedisSerializer(CompactCodec codec, Class<T> type) {
+        this.codec = codec;
+        this.type = type;
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            return codec.encode(value);
+        } catch (UncheckedIOException e) {
+            throw new SerializationException(e.getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        try {
+            return codec.decode(bytes, type);
+        } catch (UncheckedIOException e) {
+            throw new SerializationException(e.getMessage(), e.getCause());
+        }
+    }
+}
@@ -1,19 +1,29 @@
 package com.webflux.micromerce.cart.presentation.controller;
 
 import com.webflux.micromerce.cart.application.dto.request.CartItemRequest;
+import com.webflux.micromerce.cart.application.dto.request.CartSearchRequest;
 import com.webflux.micromerce.cart.application.dto.request.CreateCartUserRequest;
 import com.webflux.micromerce.cart.application.dto.request.PromoCodeRequest;
+import com.webflux.micromerce.cart.application.dto.response.CartAnalyticsResponse;
 import com.webflux.micromerce.cart.application.dto.response.CartResponse;
+import com.webflux.micromerce.cart.application.dto.response.CartSearchResponse;
+import com.webflux.micromerce.cart.application.dto.response.CartSummaryResponse;
+import com.webflux.micromerce.cart.application.service.IdempotencyService;
 import com.webflux.micromerce.cart.application.usecase.*;
 import com.webflux.micromerce.cart.domain.model.Cart;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/v1/carts")
@@ -23,18 +33,28 @@ public class CartController {
     private final CreateCartUseCase createCartUseCase;
     private final GetCartUseCase getCartUseCase;
     private final AddItemToCartUseCase addItemToCartUseCase;
+    private final AddItemsToCartUseCase addItemsToCartUseCase;
     private final RemoveItemFromCartUseCase removeItemFromCartUseCase;
     private final UpdateItemQuantityUseCase updateItemQuantityUseCase;
     private final ApplyPromoCodeUseCase applyPromoCodeUseCase;
     private final CheckoutCartUseCase checkoutCartUseCase;
     private final GetUserCartsUseCase getUserCartsUseCase;
+    private final GetUserCartSummariesUseCase getUserCartSummariesUseCase;
+    private final GetActiveCartUseCase getActiveCartUseCase;
     private final AbandonCartUseCase abandonCartUseCase;
+    private final GetCartAnalyticsUseCase getCartAnalyticsUseCase;
+    private final ExportCartsUseCase exportCartsUseCase;
+    private final SearchCartsUseCase searchCartsUseCase;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Mono<CartResponse> createCart(@RequestHeader(value = "X-User-Id", required = true) String userId) {
+    public Mono<CartResponse> createCart(
+            @RequestHeader(value = "X-User-Id", required = true) String userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("Recebida requisição para criar carrinho para usuário: {}", userId);
-        return createCartUseCase.execute(userId)
+        return idempotencyService.execute("create-cart:" + userId, idempotencyKey, userId, CartResponse.class,
+                        () -> createCartUseCase.execute(userId))
                 .doOnSuccess(response -> log.info("Carrinho criado com sucesso para usuário: {}", userId))
                 .doOnError(error -> log.error("Erro ao criar carrinho para usuário {}: {}", userId, error.getMessage()));
     }
@@ -50,13 +70,36 @@ public class CartController {
     @PostMapping("/{cartId}/items")
     public Mono<CartResponse> addItem(
             @PathVariable String cartId,
-            @Valid @RequestBody CartItemRequest request) {
+            @Valid @RequestBody CartItemRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("Adicionando item ao carrinho: {}", cartId);
-        return addItemToCartUseCase.execute(cartId, request)
+        return idempotencyService.execute("add-item:" + cartId, idempotencyKey, request, CartResponse.class,
+                        () -> addItemToCartUseCase.execute(cartId, request))
                 .doOnSuccess(response -> log.info("Item adicionado com sucesso ao carrinho {}", cartId))
                 .doOnError(error -> log.error("Erro ao adicionar item ao carrinho {}: {}", cartId, error.getMessage()));
     }
 
+    @PostMapping(value = "/{cartId}/items:batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<CartResponse> addItems(
+            @PathVariable String cartId,
+            @RequestBody List<CartItemRequest> requests) {
+        log.info("Adicionando {} itens em lote ao carrinho: {}", requests.size(), cartId);
+        return addItemsToCartUseCase.execute(cartId, Flux.fromIterable(requests))
+                .doOnSuccess(response -> log.info("Itens adicionados em lote com sucesso ao carrinho {}", cartId))
+                .doOnError(error -> log.error("Erro ao adicionar itens em lote ao carrinho {}: {}", cartId, error.getMessage()));
+    }
+
+    // Corpo NDJSON (um item por linha) é lido em streaming, para carrinhos B2B muito grandes
+    @PostMapping(value = "/{cartId}/items:batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<CartResponse> addItemsStream(
+            @PathVariable String cartId,
+            @RequestBody Flux<CartItemRequest> requests) {
+        log.info("Adicionando itens em lote (NDJSON) ao carrinho: {}", cartId);
+        return addItemsToCartUseCase.execute(cartId, requests)
+                .doOnSuccess(response -> log.info("Itens adicionados em lote com sucesso ao carrinho {}", cartId))
+                .doOnError(error -> log.error("Erro ao adicionar itens em lote ao carrinho {}: {}", cartId, error.getMessage()));
+    }
+
     @DeleteMapping("/{cartId}/items/{itemId}")
     public Mono<CartResponse> removeItem(
             @PathVariable String cartId,
@@ -114,6 +157,27 @@ public class CartController {
                 .doOnError(error -> log.error("Erro ao buscar carrinhos do usuário {}: {}", userId, error.getMessage()));
     }
 
+    // Carrinho ativo do usuário (cabeçalho da loja), resolvido pelo ponteiro no Redis; 404 se não houver
+    @GetMapping("/user/{userId}/active")
+    public Mono<CartResponse> getActiveCart(@PathVariable String userId) {
+        log.debug("Buscando carrinho ativo do usuário: {}", userId);
+        return getActiveCartUseCase.execute(userId)
+                .doOnError(error -> log.error("Erro ao buscar carrinho ativo do usuário {}: {}", userId, error.getMessage()));
+    }
+
+    // Resumo paginado (sem itens); o carrinho completo é obtido em GET /{cartId}
+    @GetMapping(value = "/user/{userId}/summaries", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CartSummaryResponse> getUserCartSummaries(
+            @PathVariable String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) String beforeId,
+            @RequestParam(defaultValue = "20") int limit) {
+        log.info("Buscando resumo dos carrinhos do usuário: {}", userId);
+        return getUserCartSummariesUseCase.execute(userId, before, beforeId, limit)
+                .doOnComplete(() -> log.info("Busca de resumo dos carrinhos do usuário {} concluída", userId))
+                .doOnError(error -> log.error("Erro ao buscar resumo dos carrinhos do usuário {}: {}", userId, error.getMessage()));
+    }
+
     @PatchMapping("/{cartId}/abandon")
     @ResponseStatus(HttpStatus.OK)
     public Mono<CartResponse> abandonCart(@PathVariable String cartId) {
@@ -122,4 +186,32 @@ public class CartController {
                 .doOnSuccess(response -> log.info("Carrinho {} abandonado com sucesso", cartId))
                 .doOnError(error -> log.error("Erro ao abandonar carrinho {}: {}", cartId, error.getMessage()));
     }
+
+    // Agregados calculados no MongoDB para os carrinhos criados no período [from, to); padrão: últimos 30 dias
+    @GetMapping("/analytics")
+    public Mono<CartAnalyticsResponse> getAnalytics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("Calculando analytics dos carrinhos entre {} e {}", from, to);
+        return getCartAnalyticsUseCase.execute(from, to)
+                .doOnError(error -> log.error("Erro ao calcular analytics dos carrinhos: {}", error.getMessage()));
+    }
+
+    // Exportação em NDJSON dos carrinhos criados no período [from, to), em streaming
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CartResponse> exportCarts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("Exportando carrinhos criados entre {} e {}", from, to);
+        return exportCartsUseCase.execute(from, to)
+                .doOnError(error -> log.error("Erro ao exportar carrinhos: {}", error.getMessage()));
+    }
+
+    // Busca no índice carts do Elasticsearch, sem carga no MongoDB; a próxima página é pedida com nextCursor
+    @GetMapping("/search")
+    public Mono<CartSearchResponse> searchCarts(CartSearchRequest request) {
+        log.info("Buscando carrinhos no Elasticsearch: {}", request);
+        return searchCartsUseCase.execute(request)
+                .doOnError(error -> log.error("Erro ao buscar carrinhos: {}", error.getMessage()));
+    }
 }
@@ -0,0 +1,7 @@
+package com.webflux.micromerce.cart.presentation.exception;
+
+public class ActiveCartConflictException extends RuntimeException {
+    public ActiveCartConflictException(String message) {
+        super(message);
+    }
+}
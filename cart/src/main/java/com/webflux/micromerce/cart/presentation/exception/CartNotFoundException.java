@@ -4,4 +4,12 @@ public class CartNotFoundException extends RuntimeException {
     public CartNotFoundException(String cartId) {
         super("Carrinho não encontrado com id: " + cartId);
     }
+
+    private CartNotFoundException(String prefix, String id) {
+        super(prefix + id);
+    }
+
+    public static CartNotFoundException activeCartOf(String userId) {
+        return new CartNotFoundException("Nenhum carrinho ativo para o usuário: ", userId);
+    }
 }
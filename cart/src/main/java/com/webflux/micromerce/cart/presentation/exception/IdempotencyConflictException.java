@@ -0,0 +1,7 @@
+package com.webflux.micromerce.cart.presentation.exception;
+
+public class IdempotencyConflictException extends RuntimeException {
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.webflux.micromerce.cart.presentation.exception;
+
+// Requisição inválida por parte do cliente (parâmetros, período, código promocional etc.); respondida com 400
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
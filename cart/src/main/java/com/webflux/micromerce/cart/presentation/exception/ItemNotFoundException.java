@@ -4,4 +4,12 @@ public class ItemNotFoundException extends RuntimeException {
     public ItemNotFoundException(String productId) {
         super(String.format("Item com ID do produto %s não encontrado no carrinho", productId));
     }
+
+    private ItemNotFoundException(String format, String id) {
+        super(String.format(format, id));
+    }
+
+    public static ItemNotFoundException withItemId(String itemId) {
+        return new ItemNotFoundException("Item %s não encontrado no carrinho", itemId);
+    }
 }
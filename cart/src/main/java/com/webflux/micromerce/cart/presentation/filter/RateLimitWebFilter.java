@@ -0,0 +1,187 @@
+package com.webflux.micromerce.cart.presentation.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webflux.micromerce.cart.infrastructure.ratelimit.TokenBucket;
+import com.webflux.micromerce.cart.infrastructure.redis.SlidingWindowRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Controle de admissão por usuário (X-User-Id) e rota (método + template do mapeamento). Um token bucket
+// em memória rejeita rajadas sem ir ao Redis; as requisições admitidas localmente passam pela janela
+// deslizante no Redis, que limita o total entre todas as instâncias. Se o Redis falhar, a requisição segue.
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "cart.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitWebFilter implements WebFilter {
+
+    private static final String API_PREFIX = "/api/v1/carts";
+    private static final String USER_HEADER = "X-User-Id";
+    private static final String UNMATCHED_ROUTE = "unmatched";
+    private static final Duration REDIS_TIMEOUT = Duration.ofMillis(100);
+
+    private final SlidingWindowRateLimiter clusterLimiter;
+    private final ObjectProvider<RequestMappingHandlerMapping> handlerMapping;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final long capacity;
+    private final double refillPerSecond;
+    private final long clusterLimit;
+    private final Duration clusterWindow;
+    private final Cache<String, TokenBucket> buckets;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private volatile List<PathPattern> routes;
+
+    public RateLimitWebFilter(SlidingWindowRateLimiter clusterLimiter,
+                              @Qualifier("requestMappingHandlerMapping") ObjectProvider<RequestMappingHandlerMapping> handlerMapping,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${cart.rate-limit.capacity:20}") long capacity,
+                              @Value("${cart.rate-limit.refill-per-second:10}") double refillPerSecond,
+                              @Value("${cart.rate-limit.cluster-limit:600}") long clusterLimit,
+                              @Value("${cart.rate-limit.cluster-window:1m}") Duration clusterWindow,
+                              @Value("${cart.rate-limit.max-tracked-keys:100000}") long maxTrackedKeys) {
+        this.clusterLimiter = clusterLimiter;
+        this.handlerMapping = handlerMapping;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.capacity = capacity;
+        this.refillPerSecond = refillPerSecond;
+        this.clusterLimit = clusterLimit;
+        this.clusterWindow = clusterWindow;
+        // Um bucket ocioso pelo tempo de encher por completo equivale a um novo e pode ser descartado
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .expireAfterAccess(Duration.ofMillis((long) Math.ceil(capacity * 1000 / refillPerSecond)).plusSeconds(1))
+                .build();
+        Gauge.builder("cart.ratelimit.keys", buckets, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        if (!path.value().startsWith(API_PREFIX)) {
+            return chain.filter(exchange);
+        }
+        String route = exchange.getRequest().getMethod().name() + " " + routeTemplate(path);
+        String key = clientId(exchange) + "|" + route;
+
+        long waitNanos = buckets.get(key, ignored -> new TokenBucket(capacity, refillPerSecond, System.nanoTime()))
+                .tryConsume(System.nanoTime());
+        if (waitNanos > 0) {
+            count(route, "rejected_local");
+            return reject(exchange, Duration.ofNanos(waitNanos));
+        }
+
+        return clusterLimiter.tryAcquire(key, clusterLimit, clusterWindow)
+                .timeout(REDIS_TIMEOUT)
+                .onErrorResume(error -> {
+                    count(route, "redis_error");
+                    log.warn("Limite de requisições no Redis indisponível, requisição admitida: {}", error.getMessage());
+                    return Mono.just(Duration.ZERO);
+                })
+                .flatMap(retryAfter -> {
+                    if (!retryAfter.isZero()) {
+                        count(route, "rejected_cluster");
+                        return reject(exchange, retryAfter);
+                    }
+                    count(route, "allowed");
+                    return chain.filter(exchange);
+                });
+    }
+
+    // Sem X-User-Id, o limite é aplicado por endereço de origem
+    private String clientId(ServerWebExchange exchange) {
+        String userId = exchange.getRequest().getHeaders().getFirst(USER_HEADER);
+        if (userId != null && !userId.isBlank()) {
+            return "user:" + userId;
+        }
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return "ip:" + (remote != null ? remote.getHostString() : "unknown");
+    }
+
+    // Template do mapeamento (ex.: /api/v1/carts/{cartId}/items), para que cada carrinho não gere uma chave própria
+    private String routeTemplate(PathContainer path) {
+        for (PathPattern pattern : routes()) {
+            if (pattern.matches(path)) {
+                // Chaves no Redis Cluster: chaves entre {} definiriam o slot, então são removidas do nome
+                return pattern.getPatternString().replace("{", "").replace("}", "");
+            }
+        }
+        return UNMATCHED_ROUTE;
+    }
+
+    private List<PathPattern> routes() {
+        List<PathPattern> current = routes;
+        if (current == null) {
+            current = handlerMapping.getObject().getHandlerMethods().keySet().stream()
+                    .flatMap(info -> info.getPatternsCondition().getPatterns().stream())
+                    .filter(pattern -> pattern.getPatternString().startsWith(API_PREFIX))
+                    .distinct()
+                    .sorted(PathPattern.SPECIFICITY_COMPARATOR)
+                    .toList();
+            routes = current;
+        }
+        return current;
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, Duration retryAfter) {
+        ServerHttpResponse response = exchange.getResponse();
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        body.put("error", "Too Many Requests");
+        body.put("message", "Limite de requisições excedido. Tente novamente em " + seconds + " segundo(s).");
+        body.put("path", exchange.getRequest().getPath().value());
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(body))));
+        } catch (JsonProcessingException e) {
+            return response.setComplete();
+        }
+    }
+
+    private void count(String route, String outcome) {
+        counters.computeIfAbsent(route + "|" + outcome, ignored -> Counter.builder("cart.ratelimit.requests")
+                        .tag("route", route)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry))
+                .increment();
+    }
+}
@@ -1,7 +1,13 @@
 package com.webflux.micromerce.cart.presentation.handler;
 
+import com.webflux.micromerce.cart.presentation.exception.ActiveCartConflictException;
 import com.webflux.micromerce.cart.presentation.exception.CartCreationException;
 import com.webflux.micromerce.cart.presentation.exception.CartNotFoundException;
+import com.webflux.micromerce.cart.presentation.exception.IdempotencyConflictException;
+import com.webflux.micromerce.cart.presentation.exception.InvalidCartStateException;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import com.webflux.micromerce.cart.presentation.exception.ItemNotFoundException;
+import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -15,8 +21,8 @@ import java.util.Map;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
-    @ExceptionHandler(CartNotFoundException.class)
-    public Mono<ResponseEntity<Map<String, Object>>> handleCartNotFoundException(CartNotFoundException ex) {
+    @ExceptionHandler({CartNotFoundException.class, ItemNotFoundException.class})
+    public Mono<ResponseEntity<Map<String, Object>>> handleCartNotFoundException(RuntimeException ex) {
         Map<String, Object> response = new HashMap<>();
         response.put("timestamp", LocalDateTime.now());
         response.put("status", HttpStatus.NOT_FOUND.value());
@@ -40,6 +46,31 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response));
     }
 
+    // IllegalArgumentException não entra aqui: vinda de bibliotecas ou de erro de programação, é falha interna
+    @ExceptionHandler({ConstraintViolationException.class, InvalidRequestException.class})
+    public Mono<ResponseEntity<Map<String, Object>>> handleBadRequestException(RuntimeException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.BAD_REQUEST.value());
+        response.put("error", "Bad Request");
+        response.put("message", ex.getMessage());
+        response.put("path", "/api/v1/carts");
+
+        return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response));
+    }
+
+    @ExceptionHandler({IdempotencyConflictException.class, ActiveCartConflictException.class, InvalidCartStateException.class})
+    public Mono<ResponseEntity<Map<String, Object>>> handleConflictException(RuntimeException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("status", HttpStatus.CONFLICT.value());
+        response.put("error", "Conflict");
+        response.put("message", ex.getMessage());
+        response.put("path", "/api/v1/carts");
+
+        return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(response));
+    }
+
     @ExceptionHandler(Exception.class)
     public Mono<ResponseEntity<Map<String, Object>>> handleGenericException(Exception ex) {
         Map<String, Object> response = new HashMap<>();
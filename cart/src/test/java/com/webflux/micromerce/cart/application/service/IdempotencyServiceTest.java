@@ -0,0 +1,93 @@
+package com.webflux.micromerce.cart.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webflux.micromerce.cart.infrastructure.redis.IdempotencyStore;
+import com.webflux.micromerce.cart.presentation.exception.IdempotencyConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyStore store = mock(IdempotencyStore.class);
+        when(store.reserve(anyString(), anyString(), any())).thenAnswer(invocation -> Mono.fromCallable(() ->
+                redis.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null));
+        when(store.get(anyString())).thenAnswer(invocation -> Mono.justOrEmpty(redis.get(invocation.<String>getArgument(0))));
+        when(store.complete(anyString(), anyString(), any())).thenAnswer(invocation -> Mono.fromCallable(() -> {
+            redis.put(invocation.getArgument(0), invocation.getArgument(1));
+            return true;
+        }));
+        when(store.release(anyString())).thenAnswer(invocation -> Mono.fromCallable(() ->
+                redis.remove(invocation.<String>getArgument(0)) != null));
+        service = new IdempotencyService(store, new ObjectMapper(), new SimpleMeterRegistry(),
+                Duration.ofMinutes(10), Duration.ofSeconds(30), Duration.ofSeconds(2), 100);
+    }
+
+    @Test
+    void execute_ConcurrentDuplicates_RunsActionOnce() {
+        // Arrange
+        AtomicInteger executions = new AtomicInteger();
+
+        // Act
+        var results = Flux.range(0, 20)
+                .flatMap(i -> service.execute("create-cart:user-1", "key-1", "user-1", String.class,
+                                () -> Mono.fromCallable(() -> "cart-" + executions.incrementAndGet())
+                                        .delayElement(Duration.ofMillis(50)))
+                        .subscribeOn(Schedulers.parallel()))
+                .collectList()
+                .block();
+
+        // Assert
+        assertThat(executions).hasValue(1);
+        assertThat(results).hasSize(20).containsOnly("cart-1");
+    }
+
+    @Test
+    void execute_SameKeyDifferentRequest_ReturnsConflict() {
+        // Arrange
+        service.execute("add-item:cart-1", "key-1", "product-1", String.class, () -> Mono.just("ok")).block();
+
+        // Act & Assert
+        StepVerifier.create(service.execute("add-item:cart-1", "key-1", "product-2", String.class, () -> Mono.just("ok")))
+                .expectError(IdempotencyConflictException.class)
+                .verify();
+    }
+
+    @Test
+    void execute_ActionFails_ReleasesKeyForRetry() {
+        // Arrange
+        AtomicInteger executions = new AtomicInteger();
+        service.execute("create-cart:user-1", "key-1", "user-1", String.class,
+                        () -> Mono.<String>error(new IllegalStateException("falha")))
+                .onErrorResume(error -> Mono.empty())
+                .block();
+
+        // Act
+        String result = service.execute("create-cart:user-1", "key-1", "user-1", String.class,
+                () -> Mono.fromCallable(() -> "cart-" + executions.incrementAndGet())).block();
+
+        // Assert
+        assertThat(result).isEqualTo("cart-1");
+        assertThat(redis).containsKey("create-cart:user-1:key-1");
+    }
+}
@@ -0,0 +1,75 @@
+package com.webflux.micromerce.cart.application.service;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.PromoRule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromoRuleSetTest {
+
+    @Test
+    void discountFor_RuleConditions_AppliedPerRule() {
+        // Arrange
+        PromoRuleSet ruleSet = PromoRuleSet.compile(List.of(
+                rule("WELCOME18", PromoRule.DiscountType.FIXED, "18.00").minSubtotal(new BigDecimal("100.01")).build(),
+                rule("TEN", PromoRule.DiscountType.PERCENT, "10").build(),
+                rule("SHOES", PromoRule.DiscountType.PERCENT, "50").productIds(Set.of("shoes")).build(),
+                rule("INACTIVE", PromoRule.DiscountType.FIXED, "5.00").active(false).build()));
+        Cart cart = cart(item("shoes", "30.00", 2), item("socks", "5.55", 3));
+
+        // Act
+        BigDecimal welcome = ruleSet.find("WELCOME18").discountFor(cart);
+        BigDecimal percent = ruleSet.find("TEN").discountFor(cart);
+        BigDecimal perProduct = ruleSet.find("SHOES").discountFor(cart);
+
+        // Assert
+        assertThat(welcome).isNull();
+        assertThat(percent).isEqualByComparingTo("7.66");
+        assertThat(perProduct).isEqualByComparingTo("30.00");
+        assertThat(ruleSet.find("INACTIVE")).isNull();
+        assertThat(ruleSet.size()).isEqualTo(3);
+    }
+
+    @Test
+    void isValidAt_ExpiredRule_ReturnsFalse() {
+        // Arrange
+        Instant now = Instant.now();
+        PromoRuleSet ruleSet = PromoRuleSet.compile(List.of(
+                rule("OLD", PromoRule.DiscountType.FIXED, "5.00").expiresAt(now.minusSeconds(1)).build(),
+                rule("LATER", PromoRule.DiscountType.FIXED, "5.00").startsAt(now.plusSeconds(60)).build()));
+
+        // Act / Assert
+        assertThat(ruleSet.find("OLD").isValidAt(now)).isFalse();
+        assertThat(ruleSet.find("LATER").isValidAt(now)).isFalse();
+    }
+
+    private PromoRule.PromoRuleBuilder rule(String code, PromoRule.DiscountType type, String value) {
+        return PromoRule.builder()
+                .code(code)
+                .discountType(type)
+                .value(new BigDecimal(value));
+    }
+
+    private Cart cart(CartItem... items) {
+        return Cart.builder()
+                .items(new ArrayList<>(List.of(items)))
+                .build();
+    }
+
+    private CartItem item(String productId, String unitPrice, int quantity) {
+        return CartItem.builder()
+                .productId(productId)
+                .productName("Produto " + productId)
+                .quantity(quantity)
+                .unitPrice(new BigDecimal(unitPrice))
+                .build();
+    }
+}
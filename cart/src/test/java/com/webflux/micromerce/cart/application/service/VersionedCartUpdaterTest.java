@@ -0,0 +1,138 @@
+package com.webflux.micromerce.cart.application.service;
+
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VersionedCartUpdaterTest {
+
+    private static final String CART_ID = "cart-1";
+
+    private final AtomicReference<Cart> stored = new AtomicReference<>();
+    private SimpleMeterRegistry meterRegistry;
+    private CartRepository cartRepository;
+
+    @BeforeEach
+    void setUp() {
+        stored.set(Cart.builder()
+                .id(CART_ID)
+                .userId("user-1")
+                .status(CartStatus.ACTIVE)
+                .items(new ArrayList<>())
+                .totalAmount(BigDecimal.ZERO)
+                .version(0L)
+                .build());
+
+        // Simula o compare-and-set do MongoDB sobre um único documento em memória
+        cartRepository = mock(CartRepository.class);
+        when(cartRepository.findById(CART_ID)).thenAnswer(invocation -> Mono.fromSupplier(() -> stored.get().copy()));
+        when(cartRepository.update(any(Cart.class))).thenAnswer(invocation -> {
+            Cart candidate = invocation.getArgument(0);
+            return Mono.fromSupplier(() -> {
+                Cart current = stored.get();
+                Cart next = candidate.copy();
+                next.setVersion(candidate.getVersion() + 1);
+                if (!Objects.equals(current.getVersion(), candidate.getVersion()) || !stored.compareAndSet(current, next)) {
+                    throw new OptimisticLockingFailureException("Conflito de versão");
+                }
+                return next.copy();
+            });
+        });
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void update_ConcurrentSubscribers_NoItemLost() {
+        // Arrange
+        VersionedCartUpdater cartUpdater = new VersionedCartUpdater(
+                cartRepository, meterRegistry, 100, Duration.ofMillis(1), Duration.ofMillis(20));
+        int subscribers = 32;
+
+        // Act
+        Flux<Cart> updates = Flux.range(0, subscribers)
+                .flatMap(i -> cartUpdater.update(CART_ID, cart -> {
+                            cart.addItem(item("product-" + i));
+                            return Mono.just(cart);
+                        })
+                        .subscribeOn(Schedulers.parallel()), subscribers);
+
+        // Assert
+        StepVerifier.create(updates)
+                .expectNextCount(subscribers)
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+
+        assertThat(stored.get().getItems()).hasSize(subscribers);
+        assertThat(stored.get().getVersion()).isEqualTo(subscribers);
+        assertThat(stored.get().getTotalAmount()).isEqualByComparingTo(BigDecimal.TEN.multiply(BigDecimal.valueOf(subscribers)));
+        assertThat(meterRegistry.counter("cart.update.commits").count()).isEqualTo(subscribers);
+    }
+
+    @Test
+    void update_StaleFirstRead_ReappliesMutationOnCurrentVersion() {
+        // Arrange
+        VersionedCartUpdater cartUpdater = new VersionedCartUpdater(
+                cartRepository, meterRegistry, 3, Duration.ofMillis(1), Duration.ofMillis(5));
+        Cart stale = stored.get().copy();
+        stored.set(stored.get().toBuilder().version(5L).build());
+
+        // Act & Assert
+        StepVerifier.create(cartUpdater.update(CART_ID, Mono.just(stale), cart -> {
+                    cart.setStatus(CartStatus.ABANDONED);
+                    return Mono.just(cart);
+                }))
+                .assertNext(cart -> {
+                    assertThat(cart.getStatus()).isEqualTo(CartStatus.ABANDONED);
+                    assertThat(cart.getVersion()).isEqualTo(6L);
+                })
+                .verifyComplete();
+
+        assertThat(meterRegistry.counter("cart.update.conflicts").count()).isEqualTo(1);
+    }
+
+    @Test
+    void update_PersistentConflict_FailsAfterRetries() {
+        // Arrange
+        VersionedCartUpdater cartUpdater = new VersionedCartUpdater(
+                cartRepository, meterRegistry, 2, Duration.ofMillis(1), Duration.ofMillis(5));
+        when(cartRepository.update(any(Cart.class)))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("Conflito de versão")));
+
+        // Act & Assert
+        StepVerifier.create(cartUpdater.update(CART_ID, Mono::just))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(meterRegistry.counter("cart.update.conflicts").count()).isEqualTo(3);
+        assertThat(meterRegistry.counter("cart.update.retries.exhausted").count()).isEqualTo(1);
+    }
+
+    private CartItem item(String productId) {
+        return CartItem.builder()
+                .productId(productId)
+                .productName("Produto " + productId)
+                .quantity(1)
+                .unitPrice(BigDecimal.TEN)
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.webflux.micromerce.cart.application.usecase;
+
+import com.webflux.micromerce.cart.application.dto.response.CartResponse;
+import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.application.service.CartLoader;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import com.webflux.micromerce.cart.infrastructure.redis.ActiveCartPointer;
+import com.webflux.micromerce.cart.presentation.exception.CartNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GetActiveCartUseCaseTest {
+
+    private final Map<String, String> pointers = new ConcurrentHashMap<>();
+    private CartLoader cartLoader;
+    private CartRepository cartRepository;
+    private GetActiveCartUseCase useCase;
+
+    @BeforeEach
+    void setUp() {
+        ActiveCartPointer pointer = mock(ActiveCartPointer.class);
+        when(pointer.get(anyString())).thenAnswer(invocation -> Mono.justOrEmpty(pointers.get(invocation.<String>getArgument(0))));
+        when(pointer.setIfAbsent(anyString(), anyString(), any())).thenAnswer(invocation -> Mono.fromCallable(() ->
+                pointers.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null));
+        when(pointer.clear(anyString(), anyString())).thenAnswer(invocation -> Mono.fromCallable(() ->
+                pointers.remove(invocation.getArgument(0), invocation.getArgument(1))));
+        cartLoader = mock(CartLoader.class);
+        cartRepository = mock(CartRepository.class);
+        useCase = new GetActiveCartUseCase(pointer, cartLoader, cartRepository, new CartMapper(), new SimpleMeterRegistry(),
+                Duration.ofDays(7), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void execute_PointerToActiveCart_SkipsMongo() {
+        // Arrange
+        pointers.put("user-1", "cart-1");
+        when(cartLoader.load("cart-1")).thenReturn(Mono.just(cart("cart-1", CartStatus.ACTIVE)));
+
+        // Act
+        CartResponse response = useCase.execute("user-1").block();
+
+        // Assert
+        assertThat(response.id()).isEqualTo("cart-1");
+        verify(cartRepository, never()).findByUserIdAndStatus(anyString(), any());
+    }
+
+    @Test
+    void execute_StalePointer_FallsBackToMongoAndRepointsToActiveCart() {
+        // Arrange
+        pointers.put("user-1", "cart-1");
+        when(cartLoader.load("cart-1")).thenReturn(Mono.just(cart("cart-1", CartStatus.COMPLETED)));
+        when(cartRepository.findByUserIdAndStatus("user-1", CartStatus.ACTIVE))
+                .thenReturn(Mono.just(cart("cart-2", CartStatus.ACTIVE)));
+
+        // Act
+        CartResponse response = useCase.execute("user-1").block();
+
+        // Assert
+        assertThat(response.id()).isEqualTo("cart-2");
+        assertThat(pointers).containsEntry("user-1", "cart-2");
+    }
+
+    @Test
+    void execute_NoActiveCart_RecordsNoneAndReturnsNotFound() {
+        // Arrange
+        when(cartRepository.findByUserIdAndStatus("user-1", CartStatus.ACTIVE)).thenReturn(Mono.empty());
+
+        // Act & Assert
+        StepVerifier.create(useCase.execute("user-1"))
+                .expectError(CartNotFoundException.class)
+                .verify();
+        assertThat(pointers).containsEntry("user-1", ActiveCartPointer.NONE);
+    }
+
+    private Cart cart(String id, CartStatus status) {
+        return Cart.builder()
+                .id(id)
+                .userId("user-1")
+                .status(status)
+                .items(new ArrayList<>())
+                .totalAmount(BigDecimal.ZERO)
+                .build();
+    }
+}
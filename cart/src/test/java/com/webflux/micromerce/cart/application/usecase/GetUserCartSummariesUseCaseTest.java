@@ -0,0 +1,97 @@
+package com.webflux.micromerce.cart.application.usecase;
+
+import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import com.webflux.micromerce.cart.domain.model.CartSummary;
+import com.webflux.micromerce.cart.domain.repository.CartRepository;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GetUserCartSummariesUseCaseTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 10, 12, 0);
+
+    private CartRepository cartRepository;
+    private GetUserCartSummariesUseCase useCase;
+
+    @BeforeEach
+    void setUp() {
+        cartRepository = mock(CartRepository.class);
+        useCase = new GetUserCartSummariesUseCase(cartRepository, new CartMapper(), 100);
+    }
+
+    @Test
+    void execute_FirstPage_MapsSummariesInRepositoryOrder() {
+        // Arrange
+        when(cartRepository.findSummariesByUserId("user-1", null, null, 20))
+                .thenReturn(Flux.just(summary("cart-2", CREATED_AT), summary("cart-1", CREATED_AT.minusDays(1))));
+
+        // Act & Assert
+        StepVerifier.create(useCase.execute("user-1", null, null, 20))
+                .expectNextMatches(response -> response.id().equals("cart-2") && response.itemCount() == 3
+                        && response.totalAmount().compareTo(new BigDecimal("90.00")) == 0)
+                .expectNextMatches(response -> response.id().equals("cart-1")
+                        && response.createdAt().equals(CREATED_AT.minusDays(1)))
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_NextPage_PassesCursorToRepository() {
+        // Arrange
+        when(cartRepository.findSummariesByUserId("user-1", CREATED_AT, "cart-2", 20))
+                .thenReturn(Flux.just(summary("cart-1", CREATED_AT.minusDays(1))));
+
+        // Act & Assert
+        StepVerifier.create(useCase.execute("user-1", CREATED_AT, "cart-2", 20))
+                .expectNextMatches(response -> response.id().equals("cart-1"))
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_LimitAboveMaximum_ClampsPageSize() {
+        // Arrange
+        when(cartRepository.findSummariesByUserId("user-1", null, null, 100)).thenReturn(Flux.empty());
+
+        // Act
+        StepVerifier.create(useCase.execute("user-1", null, null, 5_000))
+                .verifyComplete();
+
+        // Assert
+        verify(cartRepository).findSummariesByUserId("user-1", null, null, 100);
+    }
+
+    @Test
+    void execute_NonPositiveLimit_ReturnsInvalidRequest() {
+        // Act & Assert
+        StepVerifier.create(useCase.execute("user-1", null, null, 0))
+                .expectError(InvalidRequestException.class)
+                .verify();
+        verify(cartRepository, never()).findSummariesByUserId(anyString(), any(), any(), anyInt());
+    }
+
+    private CartSummary summary(String id, LocalDateTime createdAt) {
+        return CartSummary.builder()
+                .id(id)
+                .status(CartStatus.ACTIVE)
+                .totalAmount(new BigDecimal("90.00"))
+                .discountAmount(new BigDecimal("10.00"))
+                .itemCount(3)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+}
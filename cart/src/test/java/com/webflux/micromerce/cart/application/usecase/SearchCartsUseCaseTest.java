@@ -0,0 +1,83 @@
+package com.webflux.micromerce.cart.application.usecase;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webflux.micromerce.cart.application.dto.request.CartSearchRequest;
+import com.webflux.micromerce.cart.application.dto.response.CartSearchResponse;
+import com.webflux.micromerce.cart.application.mapper.CartMapper;
+import com.webflux.micromerce.cart.domain.model.CartSearchCriteria;
+import com.webflux.micromerce.cart.domain.model.CartSearchResult;
+import com.webflux.micromerce.cart.domain.repository.CartSearchRepository;
+import com.webflux.micromerce.cart.presentation.exception.InvalidRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchCartsUseCaseTest {
+
+    private CartSearchRepository searchRepository;
+    private SearchCartsUseCase useCase;
+
+    @BeforeEach
+    void setUp() {
+        searchRepository = mock(CartSearchRepository.class);
+        useCase = new SearchCartsUseCase(searchRepository, new CartMapper(), new ObjectMapper(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void execute_NextCursor_RoundTripsSearchAfter() {
+        // Arrange
+        List<Object> sortValues = List.of(1700000000000L, "cart-42");
+        when(searchRepository.search(any())).thenReturn(Mono.just(CartSearchResult.builder()
+                .total(50)
+                .nextSearchAfter(sortValues)
+                .build()));
+        CartSearchResponse firstPage = useCase.execute(CartSearchRequest.builder().productId("p-1").build()).block();
+
+        // Act
+        useCase.execute(CartSearchRequest.builder().productId("p-1").cursor(firstPage.nextCursor()).build()).block();
+
+        // Assert
+        ArgumentCaptor<CartSearchCriteria> criteria = ArgumentCaptor.forClass(CartSearchCriteria.class);
+        verify(searchRepository, times(2)).search(criteria.capture());
+        assertThat(criteria.getAllValues().get(0).getSearchAfter()).isNull();
+        assertThat(criteria.getAllValues().get(1).getSearchAfter()).isEqualTo(sortValues);
+    }
+
+    @Test
+    void execute_SameSearchTwice_QueriesIndexOnce() {
+        // Arrange
+        when(searchRepository.search(any())).thenReturn(Mono.just(CartSearchResult.builder().total(0).build()));
+        CartSearchRequest request = CartSearchRequest.builder().sortBy("totalAmount").size(500).build();
+
+        // Act
+        useCase.execute(request).block();
+        useCase.execute(request).block();
+
+        // Assert
+        ArgumentCaptor<CartSearchCriteria> criteria = ArgumentCaptor.forClass(CartSearchCriteria.class);
+        verify(searchRepository, times(1)).search(criteria.capture());
+        assertThat(criteria.getValue().getSize()).isEqualTo(100);
+    }
+
+    @Test
+    void execute_InvalidSortField_ReturnsError() {
+        // Act & Assert
+        StepVerifier.create(useCase.execute(CartSearchRequest.builder().sortBy("userId").build()))
+                .expectError(InvalidRequestException.class)
+                .verify();
+        verify(searchRepository, never()).search(any());
+    }
+}
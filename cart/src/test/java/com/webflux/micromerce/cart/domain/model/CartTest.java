@@ -0,0 +1,68 @@
+package com.webflux.micromerce.cart.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartTest {
+
+    @Test
+    void itemOperations_IncrementalTotal_MatchesFullRecalculation() {
+        // Arrange
+        Cart cart = Cart.builder()
+                .items(new ArrayList<>())
+                .totalAmount(BigDecimal.ZERO)
+                .build();
+        for (int i = 0; i < 100; i++) {
+            cart.addItem(item("product-" + i, new BigDecimal("1.25").add(BigDecimal.valueOf(i)), i % 5 + 1));
+        }
+        String updatedId = cart.getItems().get(10).getId();
+        String removedId = cart.getItems().get(20).getId();
+
+        // Act
+        cart.updateItemQuantity(updatedId, 7);
+        cart.removeItem(removedId);
+        cart.applyPromoCode("PROMO", new BigDecimal("15.00"));
+        BigDecimal incremental = cart.getTotalAmount();
+        cart.recalculateTotal();
+
+        // Assert
+        assertThat(incremental).isEqualByComparingTo(cart.getTotalAmount());
+        assertThat(cart.getItems()).hasSize(99);
+        assertThat(cart.findItemById(updatedId).getQuantity()).isEqualTo(7);
+        assertThat(cart.findItemById(removedId)).isNull();
+    }
+
+    @Test
+    void findItemById_ItemsReplacedDirectly_ReindexesList() {
+        // Arrange
+        Cart cart = Cart.builder()
+                .items(new ArrayList<>())
+                .totalAmount(BigDecimal.ZERO)
+                .build();
+        cart.addItem(item("product-1", BigDecimal.TEN, 1));
+        CartItem replacement = item("product-2", BigDecimal.ONE, 2);
+        replacement.setId("item-2");
+
+        // Act
+        cart.getItems().add(replacement);
+        cart.recalculateTotal();
+
+        // Assert
+        assertThat(cart.findItemById("item-2")).isSameAs(replacement);
+        assertThat(cart.copy().findItemById("item-2")).isEqualTo(replacement).isNotSameAs(replacement);
+        assertThat(cart.getTotalAmount()).isEqualByComparingTo(new BigDecimal("12"));
+    }
+
+    private CartItem item(String productId, BigDecimal unitPrice, int quantity) {
+        return CartItem.builder()
+                .productId(productId)
+                .productName("Produto " + productId)
+                .quantity(quantity)
+                .unitPrice(unitPrice)
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.webflux.micromerce.cart.infrastructure.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SingleFlightTest {
+
+    private Counter coalesced;
+    private SingleFlight<String, String> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        coalesced = Counter.builder("test.coalesced").register(new SimpleMeterRegistry());
+        singleFlight = new SingleFlight<>(coalesced);
+    }
+
+    @Test
+    void execute_ConcurrentSubscribers_LoaderRunsOnce() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        StepVerifier.create(Flux.range(0, 16).flatMap(i -> singleFlight.execute("cart-1", () ->
+                        Mono.fromSupplier(() -> "v" + loads.incrementAndGet()).delayElement(Duration.ofMillis(50)))))
+                .expectNextSequence(Collections.nCopies(16, "v1"))
+                .verifyComplete();
+
+        // Assert
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(coalesced.count()).isEqualTo(15);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void execute_LoaderFails_NextCallLoadsAgain() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        StepVerifier.create(singleFlight.execute("cart-1", () -> Mono.<String>error(new IllegalStateException("falha"))
+                        .doOnSubscribe(subscription -> loads.incrementAndGet())))
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(singleFlight.execute("cart-1", () -> Mono.just("ok")
+                        .doOnSubscribe(subscription -> loads.incrementAndGet())))
+                .expectNext("ok")
+                .verifyComplete();
+
+        // Assert
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+}
@@ -0,0 +1,40 @@
+package com.webflux.micromerce.cart.infrastructure.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KibanaMetricsDataTest {
+
+    @Test
+    void record_ConcurrentThreads_NoIncrementLost() {
+        // Arrange
+        KibanaMetricsData metricsData = new KibanaMetricsData();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        metricsData.bindTo(meterRegistry);
+        int operations = 100_000;
+
+        // Act
+        Flux.range(0, operations)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .doOnNext(i -> {
+                    metricsData.recordCartCreated();
+                    metricsData.recordItemAdded();
+                    if (i % 4 == 0) {
+                        metricsData.recordCartCompleted();
+                    }
+                })
+                .sequential()
+                .blockLast();
+
+        // Assert
+        assertThat(metricsData.getCartsCreated()).isEqualTo(operations);
+        assertThat(metricsData.getTotalItems()).isEqualTo(operations);
+        assertThat(metricsData.getActiveCarts()).isEqualTo(operations - operations / 4);
+        assertThat(meterRegistry.get("cart.metrics.carts.created").functionCounter().count()).isEqualTo(operations);
+    }
+}
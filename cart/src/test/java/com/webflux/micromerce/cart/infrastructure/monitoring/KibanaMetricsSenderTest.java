@@ -0,0 +1,32 @@
+package com.webflux.micromerce.cart.infrastructure.monitoring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KibanaMetricsSenderTest {
+
+    @Test
+    void sendMetricsToKibana_BufferFull_DropsOldest() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KibanaMetricsSender sender = new KibanaMetricsSender(WebClient.builder(), new ObjectMapper(), meterRegistry,
+                "cart-service", "http://localhost:9200", "metrics", 3, 500, Duration.ofMinutes(1), 1);
+
+        // Act
+        Flux.range(0, 5)
+                .concatMap(i -> sender.sendMetricsToKibana("Redis", "metric-" + i))
+                .blockLast();
+
+        // Assert
+        assertThat(sender.queueDepth()).isEqualTo(3);
+        assertThat(meterRegistry.get("metrics.shipper.dropped").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("metrics.shipper.queue.depth").gauge().value()).isEqualTo(3);
+    }
+}
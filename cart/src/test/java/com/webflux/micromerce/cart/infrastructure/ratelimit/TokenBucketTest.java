@@ -0,0 +1,48 @@
+package com.webflux.micromerce.cart.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TokenBucketTest {
+
+    @Test
+    void tryConsume_BurstAboveCapacity_RejectsWithWaitUntilNextToken() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(3, 10, 0);
+
+        // Act
+        long first = bucket.tryConsume(0);
+        long second = bucket.tryConsume(0);
+        long third = bucket.tryConsume(0);
+        long rejected = bucket.tryConsume(0);
+
+        // Assert
+        assertThat(first).isZero();
+        assertThat(second).isZero();
+        assertThat(third).isZero();
+        assertThat(rejected).isCloseTo(TimeUnit.MILLISECONDS.toNanos(100), within(1L));
+    }
+
+    @Test
+    void tryConsume_AfterRefillPeriod_AdmitsAgainUpToCapacity() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(2, 10, 0);
+        bucket.tryConsume(0);
+        bucket.tryConsume(0);
+        long oneSecondLater = TimeUnit.SECONDS.toNanos(1);
+
+        // Act
+        long first = bucket.tryConsume(oneSecondLater);
+        long second = bucket.tryConsume(oneSecondLater);
+        long third = bucket.tryConsume(oneSecondLater);
+
+        // Assert
+        assertThat(first).isZero();
+        assertThat(second).isZero();
+        assertThat(third).isPositive();
+    }
+}
@@ -0,0 +1,104 @@
+package com.webflux.micromerce.cart.infrastructure.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.webflux.micromerce.cart.domain.model.Cart;
+import com.webflux.micromerce.cart.domain.model.CartItem;
+import com.webflux.micromerce.cart.domain.model.CartStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactCodecTest {
+
+    private final ObjectMapper jsonMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .build();
+
+    @ParameterizedTest
+    @EnumSource(CompactCodec.Format.class)
+    void encodeDecode_AllFormatsWithCompression_RoundTrip(CompactCodec.Format format) {
+        // Arrange
+        CompactCodec codec = new CompactCodec(jsonMapper, format, CompactCodec.Compression.LZ4, 0);
+        Cart cart = cart(20);
+
+        // Act
+        Cart decoded = codec.decode(codec.encode(cart), Cart.class);
+
+        // Assert
+        assertThat(decoded).isEqualTo(cart);
+    }
+
+    @Test
+    void decode_LegacyJsonEntry_ReadByBinaryCodec() throws Exception {
+        // Arrange
+        CompactCodec codec = new CompactCodec(jsonMapper, CompactCodec.Format.SMILE, CompactCodec.Compression.LZ4, 1024);
+        Cart cart = cart(5);
+        byte[] legacy = jsonMapper.writeValueAsBytes(cart);
+
+        // Act
+        Cart decoded = codec.decode(legacy, Cart.class);
+
+        // Assert
+        assertThat(decoded).isEqualTo(cart);
+    }
+
+    @Test
+    void encode_JsonWithoutCompression_KeepsPlainJson() throws Exception {
+        // Arrange
+        CompactCodec codec = new CompactCodec(jsonMapper, CompactCodec.Format.JSON, CompactCodec.Compression.NONE, 0);
+        Cart cart = cart(3);
+
+        // Act
+        byte[] encoded = codec.encode(cart);
+
+        // Assert
+        assertThat(encoded).isEqualTo(jsonMapper.writeValueAsBytes(cart));
+    }
+
+    @Test
+    void encode_SmileWithLz4_SmallerThanJson() throws Exception {
+        // Arrange
+        CompactCodec codec = new CompactCodec(jsonMapper, CompactCodec.Format.SMILE, CompactCodec.Compression.LZ4, 1024);
+        Cart cart = cart(50);
+
+        // Act
+        byte[] compact = codec.encode(cart);
+        byte[] json = jsonMapper.writeValueAsBytes(cart);
+
+        // Assert
+        assertThat(compact.length).isLessThan(json.length / 2);
+    }
+
+    private Cart cart(int items) {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 10, 14, 30, 15);
+        Cart cart = Cart.builder()
+                .id("cart-1")
+                .userId("user-1")
+                .status(CartStatus.ACTIVE)
+                .items(new ArrayList<>())
+                .totalAmount(BigDecimal.ZERO)
+                .createdAt(createdAt)
+                .updatedAt(createdAt.plusMinutes(5))
+                .version(3L)
+                .build();
+        for (int i = 0; i < items; i++) {
+            cart.addItem(CartItem.builder()
+                    .id("item-" + i)
+                    .productId("product-" + i)
+                    .productName("Produto de teste " + i)
+                    .quantity(i % 4 + 1)
+                    .unitPrice(new BigDecimal("19.90").add(BigDecimal.valueOf(i)))
+                    .imageUrl("https://cdn.micromerce.com/images/product-" + i + ".png")
+                    .build());
+        }
+        return cart;
+    }
+}
@@ -73,7 +73,7 @@ public class RedisMetricsService {
         return redisConnection.serverCommands().info()
             .map(this::parseRedisInfo)
             .timeout(TIMEOUT)
-            .doOnNext(metrics -> kibanaMetricsSender.sendMetricsToKibana("Redis", metrics))
+            .flatMap(metrics -> kibanaMetricsSender.sendMetricsToKibana("Redis", metrics))
             .onErrorResume(error -> {
                 logger.error("Falha ao monitorar métricas do Redis: error={}", error.getMessage());
                 return Mono.empty();
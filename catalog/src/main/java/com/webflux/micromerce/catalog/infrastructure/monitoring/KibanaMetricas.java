@@ -12,24 +12,18 @@ public class KibanaMetricas {
 
     private final RedisMetricsService redisMetricsService;
     private final PostgresMetricsService postgresMetricsService;
-    private final KibanaMetricsSender kibanaMetricsSender;
 
     @Autowired
     public KibanaMetricas(RedisMetricsService redisMetricsService,
-                         @Lazy PostgresMetricsService postgresMetricsService,
-                         KibanaMetricsSender kibanaMetricsSender) {
+                         @Lazy PostgresMetricsService postgresMetricsService) {
         this.redisMetricsService = redisMetricsService;
         this.postgresMetricsService = postgresMetricsService;
-        this.kibanaMetricsSender = kibanaMetricsSender;
     }
 
     public Mono<Void> monitorMetrics() {
         return Mono.when(
                 redisMetricsService.monitorRedisMetrics(),
                 postgresMetricsService.monitorPostgresMetrics()
-        ).doOnSuccess(aVoid -> {
-            kibanaMetricsSender.sendMetricsToKibana("Redis", "some-redis-metrics");
-            kibanaMetricsSender.sendMetricsToKibana("Postgres", "some-postgres-metrics");
-        });
+        );
     }
 }